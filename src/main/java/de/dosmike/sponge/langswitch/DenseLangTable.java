@@ -0,0 +1,53 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@link LangTable} holding the values in an array indexed by {@link KeyIndex} slot.
+ * Used for the default locale in overlay storage, as it should contain every key. */
+class DenseLangTable extends LangTable {
+
+	private final KeyIndex keys;
+	private final String[] values;
+	private final int size;
+
+	DenseLangTable(KeyIndex keys, Map<String, String> values) {
+		this.keys = keys;
+		keys.register(values.keySet());
+		this.values = new String[keys.size()];
+		for (Map.Entry<String, String> entry : values.entrySet())
+			this.values[keys.slot(entry.getKey())] = pool(entry.getValue());
+		size = values.size();
+		long bytes = 16 + 8L * this.values.length;
+		for (String value : this.values) bytes += MemoryBudget.estimate(value);
+		estimatedBytes = bytes;
+	}
+
+	@Override
+	String get(String path) {
+		return get(keys.slot(path));
+	}
+	@Override
+	String get(int slot, String path) {
+		return get(slot < 0 ? keys.slot(path) : slot);
+	}
+	/** @return the value in this slot or null */
+	String get(int slot) {
+		touch();
+		return (slot < 0 || slot >= values.length) ? null : values[slot];
+	}
+
+	@Override
+	int size() {
+		return size;
+	}
+
+	@Override
+	Map<String, String> asMap() {
+		Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < values.length; i++)
+			if (values[i] != null) map.put(keys.key(i), values[i]);
+		return map;
+	}
+
+}
@@ -0,0 +1,291 @@
+package de.dosmike.sponge.langswitch;
+
+import java.text.NumberFormat;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Typed placeholders in translations, written as <code>{placeholder,type}</code> or <code>{placeholder,type,style}</code>:
+ * <ul><li><code>{%amount%,number}</code> with style integer or percent</li>
+ * <li><code>{%balance%,currency}</code> with an ISO 4217 code as style to override the locales currency</li>
+ * <li><code>{%when%,date}</code>, <code>time</code> or <code>datetime</code> with style short, medium, long or full</li>
+ * <li><code>{%left%,duration}</code> for a Duration or a number of seconds</li>
+ * <li><code>{%count%,plural,=0{no apples} one{# apple} other{# apples}}</code> where # is the formatted number</li></ul>
+ * Templates are compiled once and formatters are cached per locale. Braces that don't
+ * form a valid directive, or directives for placeholders without value, stay as they are. */
+final class Directives {
+
+	private enum Type { NUMBER, CURRENCY, DATE, TIME, DATETIME, DURATION, PLURAL }
+
+	/** a compiled template without directives */
+	private static final Object[] NONE = new Object[0];
+	private static final int MAX_CACHED = 4096;
+	/** templates compiled into literal strings and directives */
+	private static final Map<String, Object[]> compiled = new ConcurrentHashMap<>();
+
+	/** NumberFormat is not thread safe, so every thread keeps its own */
+	private static final ThreadLocal<Map<String, NumberFormat>> numberFormats = ThreadLocal.withInitial(HashMap::new);
+	private static final Map<String, DateTimeFormatter> dateFormats = new ConcurrentHashMap<>();
+
+	private Directives() {}
+
+	/** Appends the template with all directives formatted to out.
+	 * @param matcher the matcher for the replacements, to index used placeholders
+	 * @param used if not null, the bits of placeholders used by directives are set
+	 * @return false if the template has no directives, in which case nothing was appended */
+	static boolean apply(StringBuilder out, String template, Map<String, Object> replacements, Locale locale, PlaceholderMatcher matcher, BitSet used) {
+		if (replacements.isEmpty() || template.indexOf('{') < 0) return false;
+		Object[] parts = compile(template);
+		if (parts == NONE) return false;
+		if (locale == null) locale = Locale.ROOT;
+		for (Object part : parts) {
+			if (part instanceof String) {
+				out.append((String) part);
+				continue;
+			}
+			Directive directive = (Directive) part;
+			if (!replacements.containsKey(directive.key)) {
+				out.append(directive.source);
+				continue;
+			}
+			if (used != null) {
+				int index = matcher.indexOf(directive.key);
+				if (index >= 0) used.set(index);
+			}
+			directive.format(out, LazyReplacement.unwrap(replacements.get(directive.key), locale), locale);
+		}
+		return true;
+	}
+
+	private static Object[] compile(String template) {
+		Object[] parts = compiled.get(template);
+		if (parts != null) return parts;
+		if (compiled.size() >= MAX_CACHED) compiled.clear();
+		List<Object> list = new ArrayList<>();
+		int literal = 0, open = 0;
+		while ((open = template.indexOf('{', open)) >= 0) {
+			int close = closingBrace(template, open);
+			if (close < 0) break;
+			Directive directive = Directive.parse(template.substring(open, close+1));
+			if (directive == null) {
+				open++;
+				continue;
+			}
+			if (open > literal) list.add(template.substring(literal, open));
+			list.add(directive);
+			literal = open = close+1;
+		}
+		if (list.isEmpty()) parts = NONE;
+		else {
+			if (literal < template.length()) list.add(template.substring(literal));
+			parts = list.toArray();
+		}
+		compiled.put(template, parts);
+		return parts;
+	}
+
+	/** @return the index of the brace closing the one at open, or -1 */
+	private static int closingBrace(String s, int open) {
+		int depth = 0;
+		for (int i = open; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '{') depth++;
+			else if (c == '}' && --depth == 0) return i;
+		}
+		return -1;
+	}
+
+	private static final class Directive {
+		final String source;
+		final String key;
+		final Type type;
+		final String style;
+		/** plural selectors, either a category or =n for exact values, and the matching texts */
+		final String[] selectors;
+		final String[] branches;
+
+		private Directive(String source, String key, Type type, String style, String[] selectors, String[] branches) {
+			this.source = source;
+			this.key = key;
+			this.type = type;
+			this.style = style;
+			this.selectors = selectors;
+			this.branches = branches;
+		}
+
+		/** @param source the directive including braces
+		 * @return the directive or null if this is not a valid directive */
+		static Directive parse(String source) {
+			String body = source.substring(1, source.length()-1);
+			int first = body.indexOf(',');
+			if (first <= 0) return null;
+			int second = body.indexOf(',', first+1);
+			String key = body.substring(0, first).trim();
+			String typeName = (second < 0 ? body.substring(first+1) : body.substring(first+1, second)).trim();
+			String style = second < 0 ? null : body.substring(second+1).trim();
+			if (key.isEmpty() || key.indexOf('{') >= 0) return null;
+			Type type;
+			try {
+				type = Type.valueOf(typeName.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+			if (type != Type.PLURAL) return new Directive(source, key, type, style, null, null);
+
+			if (style == null) return null;
+			List<String> selectors = new ArrayList<>(), branches = new ArrayList<>();
+			int at = 0;
+			while (at < style.length()) {
+				int open = style.indexOf('{', at);
+				if (open < 0) {
+					if (!style.substring(at).trim().isEmpty()) return null;
+					break;
+				}
+				int close = closingBrace(style, open);
+				String selector = style.substring(at, open).trim();
+				if (close < 0 || selector.isEmpty()) return null;
+				selectors.add(selector);
+				branches.add(style.substring(open+1, close));
+				at = close+1;
+			}
+			if (selectors.isEmpty()) return null;
+			return new Directive(source, key, type, null, selectors.toArray(new String[0]), branches.toArray(new String[0]));
+		}
+
+		void format(StringBuilder out, Object value, Locale locale) {
+			switch (type) {
+				case NUMBER:
+				case CURRENCY:
+					if (value instanceof Number) out.append(numberFormat(type, style, locale).format(value));
+					else out.append(value);
+					break;
+				case DATE:
+				case TIME:
+				case DATETIME:
+					try {
+						out.append(dateFormat(type, style, locale).format(temporal(value)));
+					} catch (DateTimeException|IllegalArgumentException e) {
+						out.append(value);
+					}
+					break;
+				case DURATION:
+					if (value instanceof Duration) formatDuration(out, ((Duration) value).getSeconds());
+					else if (value instanceof Number) formatDuration(out, ((Number) value).longValue());
+					else out.append(value);
+					break;
+				case PLURAL:
+					formatPlural(out, value, locale);
+					break;
+			}
+		}
+
+		private void formatPlural(StringBuilder out, Object value, Locale locale) {
+			if (!(value instanceof Number)) {
+				out.append(value);
+				return;
+			}
+			Number number = (Number) value;
+			double d = number.doubleValue();
+			boolean integer = d == Math.rint(d);
+			long n = Math.abs(number.longValue());
+			String branch = null;
+			if (integer) {
+				String exact = "="+number.longValue();
+				for (int i = 0; i < selectors.length && branch == null; i++)
+					if (selectors[i].equals(exact)) branch = branches[i];
+			}
+			if (branch == null) branch = branch(integer ? PluralRules.forLocale(locale).select(n) : "other");
+			if (branch == null) branch = branch("other");
+			if (branch == null) {
+				out.append(value);
+				return;
+			}
+			String formatted = null;
+			for (int i = 0; i < branch.length(); i++) {
+				char c = branch.charAt(i);
+				if (c != '#') out.append(c);
+				else {
+					if (formatted == null) formatted = numberFormat(Type.NUMBER, null, locale).format(number);
+					out.append(formatted);
+				}
+			}
+		}
+		private String branch(String category) {
+			for (int i = 0; i < selectors.length; i++)
+				if (selectors[i].equals(category)) return branches[i];
+			return null;
+		}
+	}
+
+	private static NumberFormat numberFormat(Type type, String style, Locale locale) {
+		String key = type.name()+'/'+style+'/'+locale.toLanguageTag();
+		Map<String, NumberFormat> formats = numberFormats.get();
+		NumberFormat format = formats.get(key);
+		if (format == null) {
+			if (type == Type.CURRENCY) {
+				format = NumberFormat.getCurrencyInstance(locale);
+				if (style != null) try {
+					format.setCurrency(Currency.getInstance(style.toUpperCase(Locale.ROOT)));
+				} catch (IllegalArgumentException e) {
+					/* not a currency code, keep the locale currency */
+				}
+			} else if ("integer".equalsIgnoreCase(style)) format = NumberFormat.getIntegerInstance(locale);
+			else if ("percent".equalsIgnoreCase(style)) format = NumberFormat.getPercentInstance(locale);
+			else format = NumberFormat.getNumberInstance(locale);
+			formats.put(key, format);
+		}
+		return format;
+	}
+
+	private static DateTimeFormatter dateFormat(Type type, String style, Locale locale) {
+		String key = type.name()+'/'+style+'/'+locale.toLanguageTag();
+		DateTimeFormatter format = dateFormats.get(key);
+		if (format == null) {
+			FormatStyle formatStyle = FormatStyle.MEDIUM;
+			if (style != null) try {
+				formatStyle = FormatStyle.valueOf(style.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				/* keep the default style */
+			}
+			if (type == Type.DATE) format = DateTimeFormatter.ofLocalizedDate(formatStyle);
+			else if (type == Type.TIME) format = DateTimeFormatter.ofLocalizedTime(formatStyle);
+			else format = DateTimeFormatter.ofLocalizedDateTime(formatStyle);
+			format = format.withLocale(locale).withZone(ZoneId.systemDefault());
+			if (dateFormats.size() < MAX_CACHED) dateFormats.put(key, format);
+		}
+		return format;
+	}
+
+	/** @return the value as something a DateTimeFormatter can format */
+	private static TemporalAccessor temporal(Object value) {
+		if (value instanceof TemporalAccessor) return (TemporalAccessor) value;
+		if (value instanceof Date) return ((Date) value).toInstant();
+		if (value instanceof Calendar) return ((Calendar) value).toInstant();
+		if (value instanceof Number) return Instant.ofEpochMilli(((Number) value).longValue());
+		throw new IllegalArgumentException("Not a date");
+	}
+
+	/** formats as [days d ]h:mm:ss or m:ss */
+	private static void formatDuration(StringBuilder out, long seconds) {
+		if (seconds < 0) {
+			out.append('-');
+			seconds = -seconds;
+		}
+		long days = seconds / 86400, hours = seconds / 3600 % 24, minutes = seconds / 60 % 60, secs = seconds % 60;
+		if (days > 0) out.append(days).append("d ");
+		if (days > 0 || hours > 0) {
+			out.append(hours).append(':');
+			if (minutes < 10) out.append('0');
+		}
+		out.append(minutes).append(':');
+		if (secs < 10) out.append('0');
+		out.append(secs);
+	}
+
+}
@@ -0,0 +1,111 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.PlayerLocaleStore;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/** Default {@link PlayerLocaleStore} keeping all known locales in memory and
+ * writing changes to an append-only log file.<br>
+ * Every line in the log has the format <code>uuid=language-tag</code>, an empty
+ * tag removes the entry. Later lines override earlier ones, so the log is
+ * rewritten with only the current values once it has grown too much.
+ */
+public class FileLocaleStore implements PlayerLocaleStore {
+
+	/** compact the log if it has more than this many lines per entry */
+	private static final int COMPACT_FACTOR = 2;
+	/** don't bother compacting small logs */
+	private static final int COMPACT_MINIMUM = 256;
+
+	private final Path file;
+	private final Map<UUID, Locale> locales = new ConcurrentHashMap<>();
+	private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+	private int logLines = 0;
+
+	public FileLocaleStore(Path file) {
+		this.file = file;
+		load();
+	}
+
+	private void load() {
+		if (!Files.exists(file)) return;
+		try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line=br.readLine())!=null) {
+				int split = line.indexOf('=');
+				if (split <= 0) continue;
+				logLines++;
+				try {
+					UUID id = UUID.fromString(line.substring(0, split));
+					String tag = line.substring(split+1);
+					if (tag.isEmpty()) locales.remove(id);
+					else locales.put(id, LocaleRegistry.forTag(tag));
+				} catch (IllegalArgumentException e) {
+					/* skip broken lines */
+				}
+			}
+		} catch (IOException e) {
+			LangSwitch.w("Could not read player locales from %s", file.toString());
+		}
+	}
+
+	@Override
+	public Optional<Locale> get(UUID player) {
+		return Optional.ofNullable(locales.get(player));
+	}
+
+	@Override
+	public void put(UUID player, Locale locale) {
+		Locale previous = locales.put(player, locale);
+		if (!locale.equals(previous))
+			pending.add(player.toString()+"="+locale.toLanguageTag());
+	}
+
+	@Override
+	public synchronized void flush() {
+		if (pending.isEmpty()) return;
+		try {
+			Files.createDirectories(file.getParent());
+			if (logLines > COMPACT_MINIMUM && logLines > COMPACT_FACTOR * locales.size()) {
+				//everything pending is already contained in the map
+				pending.clear();
+				compact();
+			} else {
+				try (BufferedWriter bw = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+					String line;
+					while ((line = pending.poll()) != null) {
+						bw.write(line);
+						bw.newLine();
+						logLines++;
+					}
+				}
+			}
+		} catch (IOException e) {
+			LangSwitch.w("Could not write player locales to %s", file.toString());
+		}
+	}
+
+	private void compact() throws IOException {
+		Path temp = file.resolveSibling(file.getFileName().toString()+".tmp");
+		int lines = 0;
+		try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			for (Map.Entry<UUID, Locale> entry : locales.entrySet()) {
+				bw.write(entry.getKey().toString()+"="+entry.getValue().toLanguageTag());
+				bw.newLine();
+				lines++;
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logLines = lines;
+	}
+
+}
@@ -0,0 +1,62 @@
+package de.dosmike.sponge.langswitch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/** Generates a class with {@link de.dosmike.sponge.languageservice.API.TranslationKey}
+ * constants for every path in a <code>.lang</code> file. Meant to be run from the
+ * build of a plugin using LangSwitch, see the README for a Gradle task.<br>
+ * Arguments: the default .lang file, the fully qualified class name and the source directory to write to. */
+public class KeyGenerator {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: KeyGenerator <lang file> <class name> <source dir>");
+			System.exit(1);
+		}
+		Map<String, String> values = LangFile.read(new File(args[0]), "");
+		if (values == null) throw new IOException("Could not find "+args[0]);
+		Path target = generate(new TreeMap<>(values).keySet(), args[1], new File(args[2]).toPath());
+		System.out.println("Generated "+values.size()+" keys into "+target);
+	}
+
+	/** @param paths the translation paths, ids are assigned in iteration order
+	 * @return the written file */
+	static Path generate(Collection<String> paths, String className, Path sourceDir) throws IOException {
+		int split = className.lastIndexOf('.');
+		String packageName = split < 0 ? "" : className.substring(0, split);
+		String simpleName = className.substring(split+1);
+		Path target = sourceDir.resolve(className.replace('.', File.separatorChar)+".java");
+		Files.createDirectories(target.getParent());
+		try (Writer out = new OutputStreamWriter(Files.newOutputStream(target), StandardCharsets.UTF_8)) {
+			if (!packageName.isEmpty()) out.write("package "+packageName+";\n\n");
+			out.write("import de.dosmike.sponge.languageservice.API.TranslationKey;\n\n");
+			out.write("/** Generated by LangSwitch KeyGenerator, do not edit */\n");
+			out.write("public final class "+simpleName+" {\n\n");
+			out.write("\tprivate "+simpleName+"() {}\n\n");
+			Set<String> names = new HashSet<>();
+			int id = 0;
+			for (String path : paths) {
+				String name = constantName(path);
+				if (!names.add(name)) names.add(name = name+"_"+id); //paths like a_b and a.b would collide
+				out.write("\tpublic static final TranslationKey "+name+" = new TranslationKey("+id+", \""+path+"\");\n");
+				id++;
+			}
+			out.write("\n}\n");
+		}
+		return target;
+	}
+
+	/** paths are [\w.]+ so replacing dots is enough for a valid identifier */
+	private static String constantName(String path) {
+		String name = path.replace('.', '_').toUpperCase(Locale.ROOT);
+		return Character.isDigit(name.charAt(0)) ? "_"+name : name;
+	}
+
+}
@@ -0,0 +1,72 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/** Assigns every translation path of a plugin a dense slot number, so all
+ * locales can store their values in arrays. Slots are shared by all locales
+ * of the plugin and never reassigned.<br>
+ * Lookups go through an immutable {@link RadixTrie} that is rebuilt once per
+ * batch of new paths, which also allows enumerating paths by prefix. */
+class KeyIndex {
+
+	/** slot for paths that are not known */
+	static final int NONE = RadixTrie.NONE;
+
+	private volatile RadixTrie trie = new RadixTrie(new String[0], new int[0]);
+	private volatile String[] keys = new String[64];
+	private volatile int size = 0;
+
+	/** @return the slot for this path or {@link #NONE} */
+	int slot(String path) {
+		return trie.get(path);
+	}
+
+	/** assigns slots to all paths that do not have one yet */
+	synchronized void register(Collection<String> paths) {
+		RadixTrie current = trie;
+		List<String> added = new ArrayList<>();
+		for (String path : paths)
+			if (current.get(path) == NONE) added.add(path);
+		if (added.isEmpty()) return;
+
+		String[] table = keys;
+		int total = size + added.size();
+		if (total > table.length) table = Arrays.copyOf(table, Math.max(total, size*2));
+		for (int i = size; i < total; i++)
+			table[i] = StringPool.intern(added.get(i-size));
+
+		Integer[] order = new Integer[total];
+		for (int i = 0; i < total; i++) order[i] = i;
+		final String[] sortKeys = table;
+		Arrays.sort(order, (a, b) -> sortKeys[a].compareTo(sortKeys[b]));
+		String[] sorted = new String[total];
+		int[] slots = new int[total];
+		for (int i = 0; i < total; i++) {
+			sorted[i] = table[order[i]];
+			slots[i] = order[i];
+		}
+
+		keys = table;
+		size = total;
+		trie = new RadixTrie(sorted, slots);
+	}
+
+	/** @return the path for this slot */
+	String key(int slot) {
+		return keys[slot];
+	}
+
+	/** @return the amount of slots assigned so far, all slots are smaller than this */
+	int size() {
+		return size;
+	}
+
+	/** @return a lazy cursor over all known paths with this prefix, in lexicographical order */
+	RadixTrie.Cursor paths(String prefix) {
+		return trie.cursor(prefix);
+	}
+
+}
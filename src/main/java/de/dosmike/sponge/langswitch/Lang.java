@@ -1,21 +1,62 @@
 package de.dosmike.sponge.langswitch;
 
 import de.dosmike.sponge.languageservice.API.PluginTranslation;
+import de.dosmike.sponge.languageservice.API.ResolvedTranslations;
+import de.dosmike.sponge.languageservice.API.TranslationHandle;
+import de.dosmike.sponge.languageservice.API.TranslationKey;
 
-import java.util.HashSet;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Locale;
-import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Lang extends LangItem implements PluginTranslation {
 	
-	Set<Locale> loaded = new HashSet<>();
+	/** single flight load for every locale id, present while the locale is loaded or loading.
+	 * Failed loads stay as well, so a broken file is not read again on every lookup until reloaded */
+	private final Map<Integer, CompletableFuture<Void>> loads = new ConcurrentHashMap<>();
 	@Override
 	public boolean isLocaleLoaded(Locale l) {
-		return loaded.contains(l);
+		CompletableFuture<Void> load = getLoad(LocaleRegistry.id(l));
+		return load != null && load.isDone() && !load.isCompletedExceptionally();
 	}
-	
+	/** @return the load for this locale if it's loaded or currently loading, null otherwise */
+	CompletableFuture<Void> getLoad(int locale) {
+		return locale < 0 ? null : loads.get(locale);
+	}
+	/** tries to register the future as load for this locale
+	 * @return null if the caller is now responsible for loading, or the load that was already registered */
+	CompletableFuture<Void> claimLoad(int locale, CompletableFuture<Void> load) {
+		return loads.putIfAbsent(locale, load);
+	}
+	/** forgets the load, the next request will load the locale again */
+	void markUnloaded(int locale) {
+		if (locale >= 0) loads.remove(locale);
+	}
+	/** forgets all failed loads, so they are attempted again */
+	void clearFailed() {
+		loads.values().removeIf(CompletableFuture::isCompletedExceptionally);
+	}
+
+	@Override
+	void onMissingTable(int lang) {
+		//the table was evicted or never requested, load it for the next lookup
+		if (lang >= 0 && getLoad(lang) == null)
+			LangSwitch.loader.submit(pluginID, this, LocaleRegistry.get(lang), LoadScheduler.Priority.ONLINE);
+	}
+
+	final String pluginID;
+	/** translation path slots for overlay storage and prefix enumeration */
+	final KeyIndex keys = new KeyIndex();
 	Locale def;
-	Lang(Locale defaultLocale) {
+	Lang(String pluginID, Locale defaultLocale) {
+		this.pluginID=pluginID;
 		def=defaultLocale;
 	}
 
@@ -23,6 +64,10 @@ public class Lang extends LangItem implements PluginTranslation {
 	public Locale getDefaultLocale() {
 		return def;
 	}
+	@Override
+	public long getVersion(Locale locale) {
+		return getVersion(LocaleRegistry.id(locale), LocaleRegistry.id(def));
+	}
 
 	@Override
 	public String get(String path, Locale lang) {
@@ -37,6 +82,72 @@ public class Lang extends LangItem implements PluginTranslation {
 		return query(path, lang, def).isPresent();
 	}
 
+	@Override
+	public CompletableFuture<Void> awaitLoaded(Locale locale) {
+		return LangSwitch.loader.submit(pluginID, this, locale, LoadScheduler.Priority.ONLINE);
+	}
+	@Override
+	public CompletableFuture<Void> preload(Collection<Locale> locales) {
+		return CompletableFuture.allOf(locales.stream()
+				.map(locale->LangSwitch.loader.submit(pluginID, this, locale, LoadScheduler.Priority.SPECULATIVE))
+				.toArray(CompletableFuture[]::new));
+	}
+
+	@Override
+	public synchronized void addTranslation(String path, Locale lang, String value) {
+		keys.register(Collections.singleton(path));
+		super.addTranslation(path, lang, value);
+	}
+
+	@Override
+	public Iterable<String> keys(String prefix) {
+		loadNamespaces(prefix, LocaleRegistry.id(def));
+		return ()->keys.paths(prefix);
+	}
+	@Override
+	public Iterable<Map.Entry<String, String>> entries(String prefix, Locale locale) {
+		int lang = LocaleRegistry.id(locale), fallback = LocaleRegistry.id(def);
+		loadNamespaces(prefix, fallback);
+		loadNamespaces(prefix, lang);
+		return ()->new EntryCursor(keys.paths(prefix), lang, fallback);
+	}
+	/** namespaces are only known after reading them, so queue all that might contain the prefix */
+	private void loadNamespaces(String prefix, int lang) {
+		LangTable table = getTable(lang);
+		if (table != null && table.namespaces != null) table.namespaces.requestOverlapping(prefix);
+	}
+	/** resolves the translations for paths as they are iterated, skipping paths without value */
+	private class EntryCursor implements Iterator<Map.Entry<String, String>> {
+		private final Iterator<String> paths;
+		private final int lang, fallback;
+		private Map.Entry<String, String> next;
+		EntryCursor(Iterator<String> paths, int lang, int fallback) {
+			this.paths = paths;
+			this.lang = lang;
+			this.fallback = fallback;
+			advance();
+		}
+		private void advance() {
+			next = null;
+			while (next == null && paths.hasNext()) {
+				String path = paths.next();
+				String value = query(path, lang, fallback, true);
+				if (value != null) next = new AbstractMap.SimpleImmutableEntry<>(path, value);
+			}
+		}
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+		@Override
+		public Map.Entry<String, String> next() {
+			if (next == null) throw new NoSuchElementException();
+			Map.Entry<String, String> result = next;
+			advance();
+			return result;
+		}
+	}
+
 	@Override
 	public LocalizedString local(String path) {
 		return new LocalizedString(this, path);
@@ -45,4 +156,75 @@ public class Lang extends LangItem implements PluginTranslation {
 	public LocalizedText localText(String path) {
 		return new LocalizedText(this, path);
 	}
+	@Override
+	public LocalizedString local(TranslationKey key) {
+		return new LocalizedString(this, key.getPath(), slotOf(key));
+	}
+	@Override
+	public LocalizedText localText(TranslationKey key) {
+		return new LocalizedText(this, key.getPath(), slotOf(key));
+	}
+
+	@Override
+	public ResolvedTranslations resolveAll(Collection<String> paths, Locale locale) {
+		return resolveAll(paths, locale, null);
+	}
+	@Override
+	public ResolvedTranslations resolveAll(TranslationHandle[] handles, Locale locale) {
+		return resolveAll(handles, locale, null);
+	}
+	@Override
+	public ResolvedTranslations resolveAll(Collection<String> paths, Locale locale, ResolvedTranslations reuse) {
+		ResolvedTranslationsImpl result = ResolvedTranslationsImpl.reuse(reuse, paths.size(), locale);
+		LangTable[] snapshot = getTables();
+		int lang = LocaleRegistry.id(locale), fallback = LocaleRegistry.id(def);
+		int i = 0;
+		for (String path : paths)
+			result.set(i++, path, query(snapshot, path, KeyIndex.NONE, lang, fallback, false));
+		return result;
+	}
+	@Override
+	public ResolvedTranslations resolveAll(TranslationHandle[] handles, Locale locale, ResolvedTranslations reuse) {
+		ResolvedTranslationsImpl result = ResolvedTranslationsImpl.reuse(reuse, handles.length, locale);
+		LangTable[] snapshot = getTables();
+		int lang = LocaleRegistry.id(locale), fallback = LocaleRegistry.id(def);
+		for (int i = 0; i < handles.length; i++) {
+			TranslationHandle handle = handles[i];
+			//slots are only valid for handles of this plugin
+			int slot = handle instanceof TranslationHandleImpl ? ((TranslationHandleImpl) handle).slotFor(this) : KeyIndex.NONE;
+			result.set(i, handle.getPath(), query(snapshot, handle.getPath(), slot, lang, fallback, false));
+		}
+		return result;
+	}
+
+	@Override
+	public TranslationHandleImpl handle(String path) {
+		return new TranslationHandleImpl(this, path);
+	}
+
+	/** slots by generated key id, slots never change once assigned so they can be cached forever */
+	private volatile int[] keySlots = new int[0];
+	/** Ids are only unique within one generated class, so a cached slot is only used if its path matches.
+	 * @return the {@link KeyIndex} slot for this key or {@link KeyIndex#NONE} if no locale contains it yet */
+	int slotOf(TranslationKey key) {
+		int id = key.getId();
+		int[] slots = keySlots;
+		if (id >= 0 && id < slots.length) {
+			int slot = slots[id];
+			if (slot != KeyIndex.NONE && key.getPath().equals(keys.key(slot))) return slot;
+		}
+		int slot = keys.slot(key.getPath());
+		if (slot != KeyIndex.NONE && id >= 0) cacheSlot(id, slot);
+		return slot;
+	}
+	private synchronized void cacheSlot(int id, int slot) {
+		int[] slots = keySlots;
+		if (id >= slots.length) {
+			int length = slots.length;
+			slots = Arrays.copyOf(slots, Math.max(id+1, length*2));
+			Arrays.fill(slots, length, slots.length, KeyIndex.NONE);
+		} else slots = slots.clone();
+		slots[id] = slot;
+		keySlots = slots;
+	}
 }
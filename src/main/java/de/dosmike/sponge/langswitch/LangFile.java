@@ -0,0 +1,59 @@
+package de.dosmike.sponge.langswitch;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Parser for <code>.lang</code> files, usable without a running server */
+class LangFile {
+
+	/** @param prefix prepended to every key, e.g. the namespace
+	 * @return all translations in the file or null if it does not exist
+	 * @throws RuntimeException if the file can't be read or is malformed, so no partial translations are used */
+	static Map<String, String> read(File to, String prefix) {
+		if (!to.exists()) return null;
+//		l("Trying to load " + to.getAbsolutePath());
+
+		Map<String, String> values = new HashMap<>();
+		BufferedReader br=null;
+		try {
+			br = new BufferedReader(new InputStreamReader(new FileInputStream(to), "UTF8"));
+			String line;
+			while ((line=br.readLine())!=null) {
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				int split = first(line.indexOf(':'), line.indexOf('=')); //allow the usage of either key.sub:value or key.sub=value
+				if (split<=0) throw new RuntimeException("Translations are formatted [\\w\\.]+:.* (numers, letters underscores and dots > colon > some text)");
+				String k=line.substring(0, split);
+				if (!k.matches("[\\w\\.]+")) throw new RuntimeException("Translations are formatted [\\w\\.]+:.* (numers, letters underscores and dots > colon > some text)");
+				String v=line.substring(split+1);
+//							l("  Adding %s in %s with: %s", k, getLocale().toString(), v);
+				values.put(prefix+k, v);
+			}
+		}
+		catch (FileNotFoundException e) {
+			return null; //removed after checking
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Could not read "+to, e);
+		}
+		catch (RuntimeException e) {
+			throw new RuntimeException("Could not read "+to+": "+e.getMessage(), e);
+		}
+		finally {
+			try { br.close(); } catch (Exception e) {}
+		}
+		return values;
+	}
+
+	private static int first(int a, int b) {
+		return (a>=0 && b>=0 //both valid
+				? (a<b?a:b) //minimum
+				: (a>=0 //only a valid
+				  ? a //a
+				  : (b>=0) //only b valid
+				    ? b //b
+				    : -1 //nothing
+				));
+	}
+
+}
@@ -1,134 +1,151 @@
 package de.dosmike.sponge.langswitch;
 
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LangItem {
-	Map<String, LangItem> tree = new HashMap<>();
-	Map<Locale, String> translations = new HashMap<>();
+	/** one table per locale, indexed by {@link LocaleRegistry} id */
+	private volatile LangTable[] tables = new LangTable[0];
+	/** incremented after every change to the tables, lets handles detect stale values */
+	private volatile int version = 0;
+	/** source for the per locale version stamps, shared so stamps are unique across plugins */
+	private static final AtomicLong stampCounter = new AtomicLong();
+	/** stamp of the last change for each locale, indexed like tables */
+	private volatile long[] stamps = new long[0];
 
 	/** will force a string, will return the path if nothing was found
 	 * @param silent if set, no console logging will happen when empty is returned, even if verbose mode is on
 	 */
 	public String get(String path, Locale lang, Locale fallback, boolean silent) {
-		String[] route = path.split("\\.");
-		return get(route, 0, lang, fallback, silent);
+		return get(path, LocaleRegistry.id(lang), LocaleRegistry.id(fallback), silent);
 	}
 	/** will force a string, will return the path if nothing was found */
 	public String get(String path, Locale lang, Locale fallback) {
-		String[] route = path.split("\\.");
-		return get(route, 0, lang, fallback, false);
-	}
-	String get(String[] path, int location, Locale lang, Locale fallback, boolean silent) {
-		if (location<path.length) { //path down
-			if (!tree.containsKey(path[location])) {
-				if (LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s", String.join(".", path));
-				return String.join(".", path);
-			}
-			else return tree.get(path[location]).get(path, location+1, lang, fallback, silent);
-		} else if (location>path.length) { //invalid
-			throw new RuntimeException("index exceeded");
-		} else {//get value
-			if (!translations.containsKey(lang)) { 
-				if (!translations.containsKey(fallback)) {
-					if (LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s[Default:%s]", String.join(".", path), (fallback==null?"":fallback.toString()));
-					return String.join(".", path)+String.format("[%s]", lang.toString());
-				} else {
-					if (LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s[%s]", String.join(".", path), lang.toString());
-					return translations.get(fallback);
-				}
-			} else {
-				return translations.get(lang);
-			}
-		}
+		return get(path, LocaleRegistry.id(lang), LocaleRegistry.id(fallback), false);
+	}
+	String get(String path, int lang, int fallback, boolean silent) {
+		String value = query(path, lang, fallback, silent);
+		return value != null ? value : path+String.format("[%s]", localeName(lang));
 	}
 
 	/** tries to retrieve a translation, if neither the translation nor a fallback are available Optional.empty() is returned */
 	public Optional<String> query(String path, Locale lang, Locale fallback) {
-		String[] route = path.split("\\.");
-		return query(route, 0, lang, fallback, false);
+		return Optional.ofNullable(query(path, LocaleRegistry.id(lang), LocaleRegistry.id(fallback), false));
 	}
 	/** tries to retrieve a translation, if neither the translation nor a fallback are available Optional.empty() is returned
 	 * @param silent if set, no console logging will happen when empty is returned, even if verbose mode is on */
 	public Optional<String> query(String path, Locale lang, Locale fallback, boolean silent) {
-		String[] route = path.split("\\.");
-		return query(route, 0, lang, fallback, silent);
-	}
-	Optional<String> query(String[] path, int location, Locale lang, Locale fallback, boolean silent) {
-		if (location<path.length) { //path down
-			if (!tree.containsKey(path[location])) {
-				if (LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s", String.join(".", path));
-				return Optional.empty();
-			}
-			else return tree.get(path[location]).query(path, location+1, lang, fallback, silent);
-		} else if (location>path.length) { //invalid
-			throw new RuntimeException("index exceeded");
-		} else {//get value
-			if (!translations.containsKey(lang)) { 
-				if (!translations.containsKey(fallback)) {
-					if (LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s[Default:%s]", String.join(".", path), (fallback==null?"":fallback.toString()));
-					return Optional.empty();
-				} else {
-					if (LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s[%s]", String.join(".", path), lang.toString());
-					return Optional.of(translations.get(fallback));
-				}
-			} else {
-				return Optional.of(translations.get(lang));
-			}
-		}
+		return Optional.ofNullable(query(path, LocaleRegistry.id(lang), LocaleRegistry.id(fallback), silent));
 	}
-	
-	public void addTranslation(String path, Locale lang, String value) {
-		String[] route = path.split("\\.");
-		add(route, 0, lang, value);
-		//dumptree 
-//		dump("");
-	}
-//	void dump(String prefix) {
-//		for (Locale l : translations.keySet()) LangSwitch.l(prefix+"l %s", l.toString());
-//		for (Entry<String, LangItem> e : tree.entrySet()) {
-//			LangSwitch.l(prefix+".%s", e.getKey());
-//			e.getValue().dump(prefix+" ");
-//		}
-//	}
-	void add(String[] path, int location, Locale lang, String value) {
-		if (location<path.length) { //path down
-			LangItem sub = (tree.containsKey(path[location])?tree.get(path[location]):new LangItem());
-			sub.add(path, location+1, lang, value);
-			tree.put(path[location], sub);
-		} else if (location>path.length) { //invalid
-			throw new RuntimeException("index exceeded");
-		} else {//add value
-			translations.put(lang, value);
+	/** @return the translation in lang, the translation in fallback or null */
+	String query(String path, int lang, int fallback, boolean silent) {
+		return query(path, KeyIndex.NONE, lang, fallback, silent);
+	}
+	/** @param slot the {@link KeyIndex} slot of path or {@link KeyIndex#NONE} if not known
+	 * @return the translation in lang, the translation in fallback or null */
+	String query(String path, int slot, int lang, int fallback, boolean silent) {
+		return query(this.tables, path, slot, lang, fallback, silent);
+	}
+	/** @param tables a snapshot from {@link #getTables()}, so many lookups see the same translations */
+	String query(LangTable[] tables, String path, int slot, int lang, int fallback, boolean silent) {
+		LangTable table = table(tables, lang);
+		LangTable fallbackTable = table(tables, fallback);
+		String value;
+		if (table == null) {
+			onMissingTable(lang);
+			value = fallbackTable == null ? null : fallbackTable.lookup(slot, path);
+		} else if (fallbackTable != null && table instanceof OverlayLangTable && ((OverlayLangTable) table).getBase() == fallbackTable
+				&& table.namespaces == null && fallbackTable.namespaces == null) {
+			value = ((OverlayLangTable) table).getOrBase(slot, path);
+		} else {
+			value = table.lookup(slot, path);
+			if (value == null && fallbackTable != null && fallbackTable != table) value = fallbackTable.lookup(slot, path);
 		}
+		//falling back to the default is reported once when loading the locale
+		if (value == null && LangSwitch.verbose && !silent) LangSwitch.l("Missing translation %s[Default:%s]", path, localeName(fallback));
+		return value;
+	}
+	private static LangTable table(LangTable[] tables, int lang) {
+		return (lang < 0 || lang >= tables.length) ? null : tables[lang];
+	}
+	LangTable getTable(int lang) {
+		return table(tables, lang);
+	}
+	/** @return all tables, indexed by locale id, the array must not be modified */
+	LangTable[] getTables() {
+		return tables;
+	}
+	/** called when a lookup hits a locale without table, e.g. because it was evicted */
+	void onMissingTable(int lang) {}
+	private static String localeName(int lang) {
+		Locale locale = LocaleRegistry.get(lang);
+		return locale == null ? "" : locale.toString();
+	}
+
+	/** replaces all translations for a locale at once */
+	synchronized void putTable(int lang, LangTable table) {
+		LangTable[] next = tables;
+		if (lang >= next.length) next = Arrays.copyOf(next, Math.max(lang+1, LocaleRegistry.size()));
+		else next = next.clone();
+		next[lang] = table;
+		long[] nextStamps = Arrays.copyOf(stamps, next.length);
+		nextStamps[lang] = stampCounter.incrementAndGet();
+		stamps = nextStamps;
+		tables = next;
+		version++;
+	}
+	/** marks the translations of a locale as changed without replacing its table,
+	 * e.g. after a namespace was read */
+	synchronized void invalidate(int lang) {
+		long[] nextStamps = Arrays.copyOf(stamps, Math.max(stamps.length, lang+1));
+		nextStamps[lang] = stampCounter.incrementAndGet();
+		stamps = nextStamps;
+		version++;
+	}
+	int getVersion() {
+		return version;
+	}
+	/** @return a number that increases every time the translations used for this locale change, 0 if it was never loaded */
+	public long getVersion(Locale lang) {
+		return getVersion(LocaleRegistry.id(lang), LocaleRegistry.id(LangSwitch.getServerDefault()));
+	}
+	/** Lookups see the regional fallbacks merged into the table and the fallback locale,
+	 * so the version changes if any of them changes. Stamps only increase, so the highest one is used.
+	 * @return the highest stamp along the fallback chain of lang and of the fallback locale */
+	long getVersion(int lang, int fallback) {
+		long[] stamps = this.stamps;
+		long version = stamp(stamps, lang);
+		if (version == 0) return 0;
+		for (Locale locale : LocaleRegistry.fallbackChain(lang))
+			version = Math.max(version, stamp(stamps, LocaleRegistry.id(locale)));
+		return Math.max(version, stamp(stamps, fallback));
+	}
+	private static long stamp(long[] stamps, int lang) {
+		return lang >= 0 && lang < stamps.length ? stamps[lang] : 0;
+	}
+
+	/** Prefer loading a whole {@link LangTable} at once, this has to copy the table for every value */
+	public synchronized void addTranslation(String path, Locale lang, String value) {
+		int id = LocaleRegistry.id(lang);
+		LangTable table = getTable(id);
+		putTable(id, table == null ? new MapLangTable(Collections.singletonMap(path, value)) : table.with(path, value));
 	}
 	public boolean isEmpty() {
-		return tree.isEmpty() && translations.isEmpty();
+		for (LangTable table : tables)
+			if (table != null && table.size() > 0) return false;
+		return true;
 	}
 	
 	public void removeTranslation(Locale lang) {
-		translations.remove(lang);
-		Set<String> empty = new HashSet<String>();
-		for (Entry<String, LangItem> s : tree.entrySet()) {
-			LangItem sub = s.getValue();
-			sub.removeTranslation(lang);
-			if (sub.isEmpty()) empty.add(s.getKey());
-			else tree.put(s.getKey(), sub);
-		}
-		for (String s : empty) tree.remove(s);
-	}
-	public void removeTranslation(String path) {
-		String[] parts = path.split("\\.");
-		remove(parts, 0);
-	}
-	void remove(String[] path, int location) {
-		if (location < path.length) {
-			if (tree.containsKey(path[location])) tree.get(path[location]).remove(path, location+1);
-			else return;
-		} else if (location>path.length) { //invalid
-			throw new RuntimeException("index exceeded");
-		} else {//remove value
-			tree.remove(path[location]);
-		}
+		removeTranslation(LocaleRegistry.id(lang));
+	}
+	synchronized void removeTranslation(int lang) {
+		if (lang >= 0 && lang < tables.length) putTable(lang, null);
+	}
+	public synchronized void removeTranslation(String path) {
+		LangTable[] tables = this.tables;
+		for (int i = 0; i < tables.length; i++)
+			if (tables[i] != null && tables[i].has(path))
+				putTable(i, tables[i].with(path, null));
 	}
 }
@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import de.dosmike.sponge.VersionChecker;
 import de.dosmike.sponge.geoip.GeoIPService;
 import de.dosmike.sponge.languageservice.API.LanguageService;
+import de.dosmike.sponge.languageservice.API.PlayerLocaleStore;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
 import ninja.leaping.configurate.loader.ConfigurationLoader;
@@ -21,9 +22,13 @@ import org.spongepowered.api.config.DefaultConfig;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.cause.Cause;
+import org.spongepowered.api.event.cause.EventContext;
+import org.spongepowered.api.event.filter.IsCancelled;
 import org.spongepowered.api.event.game.GameReloadEvent;
 import org.spongepowered.api.event.game.state.GameInitializationEvent;
 import org.spongepowered.api.event.game.state.GameStartedServerEvent;
+import org.spongepowered.api.event.game.state.GameStoppingServerEvent;
 import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.plugin.Plugin;
 import org.spongepowered.api.plugin.PluginContainer;
@@ -31,11 +36,14 @@ import org.spongepowered.api.profile.GameProfile;
 import org.spongepowered.api.profile.property.ProfileProperty;
 import org.spongepowered.api.scheduler.SpongeExecutorService;
 import org.spongepowered.api.text.Text;
+import org.spongepowered.api.util.Tristate;
 
 import java.io.*;
+import java.net.InetAddress;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.*;
 
 @Plugin(id="langswitch", name="LangSwitch", authors="DosMike", version="1.6.1")
 public class LangSwitch {
@@ -44,7 +52,15 @@ public class LangSwitch {
 	private static String[] available;
 
 	static boolean verbose=true;
+	/** amount of most used locales to load when a plugin registers */
+	static int preloadLocales=3;
+	static LocaleStatistics statistics;
+	static MemoryBudget budget;
+	static LangTable.Storage storage = LangTable.Storage.MAP;
 	private static SpongeExecutorService async;
+	static LoadScheduler loader;
+	/** messages sent through the service, flushed every tick */
+	static final MessageQueue messages = new MessageQueue();
 
 	static {
 		Locale[] locs = Locale.getAvailableLocales();
@@ -54,10 +70,37 @@ public class LangSwitch {
 	@Listener(order=Order.FIRST)
 	public void init(GameInitializationEvent event) { instance = this; //myL=L.createLang(this);
 		async = Sponge.getScheduler().createAsyncExecutor(instance);
+		loader = new LoadScheduler(async);
+		budget = new MemoryBudget(0);
+		statistics = new LocaleStatistics(configDir.resolve("langswitch").resolve("localestats.dat"));
 		reload();
 	
 		Sponge.getServiceManager().setProvider(this, LanguageService.class, new LanguageServiceProvider());
 		l("The LanguageService is now available!");
+
+		defaultStore = new FileLocaleStore(configDir.resolve("langswitch").resolve("playerlocales.log"));
+		Sponge.getServiceManager().setProvider(this, PlayerLocaleStore.class, defaultStore);
+		Sponge.getScheduler().createTaskBuilder()
+				.async()
+				.interval(STORE_FLUSH_INTERVAL, TimeUnit.SECONDS)
+				.name("LangSwitch PlayerLocaleStore flush")
+				.execute(()->{
+					localeStore().flush();
+					statistics.flush();
+					pendingLocales.values().removeIf(pending->MemoryBudget.clock - pending.since > PENDING_TIMEOUT);
+				})
+				.submit(this);
+		Sponge.getScheduler().createTaskBuilder()
+				.async()
+				.interval(1, TimeUnit.SECONDS)
+				.name("LangSwitch memory budget")
+				.execute(()->budget.tick())
+				.submit(this);
+		Sponge.getScheduler().createTaskBuilder()
+				.intervalTicks(1)
+				.name("LangSwitch message flush")
+				.execute(()->messages.flush())
+				.submit(this);
 		
 		Map<String, String> listMap = new HashMap<>();
 		for (String al : available) listMap.put(al, al);
@@ -67,16 +110,32 @@ public class LangSwitch {
 				if (!(src instanceof Player)) { src.sendMessage(Text.of("Only available for players")); return CommandResult.success(); }
 				Optional<String> la = args.<String>getOne("Language");
 				if (!la.isPresent()) {
-					src.sendMessage(Text.of(playerLang.get(((Player)src).getUniqueId()).toString()));
+					src.sendMessage(Text.of(String.valueOf(getPlayerLocale(((Player)src).getUniqueId()))));
 				} else {
-					String lang = la.get();
-					lang = lang.replace('_', '-'); //Locales toString used a underscore but the language tag requires a dash
-					Locale locale = Locale.forLanguageTag(lang);
+					Locale locale = LocaleRegistry.forTag(la.get());
 					playerChangedLang(((Player)src).getProfile(), locale);
 				}
 				return CommandResult.success();
 			}
 		}).build(), "language");
+
+		Sponge.getCommandManager().register(this, CommandSpec.builder()
+				.child(CommandSpec.builder()
+						.permission("langswitch.command.stats")
+						.description(Text.of("Show translation loading and memory statistics"))
+						.executor((src, args)->{
+							printStats(src);
+							return CommandResult.success();
+						}).build(), "stats")
+				.build(), "langswitch");
+	}
+	private static void printStats(CommandSource src) {
+		src.sendMessage(Text.of("LangSwitch statistics:"));
+		src.sendMessage(Text.of(String.format(" Load queue: %d waiting, %d processed", loader.getQueueDepth(), loader.getCompleted())));
+		src.sendMessage(Text.of(String.format(" Queue wait: %d ms average, %d ms max", loader.getAverageWait(), loader.getMaxWait())));
+		src.sendMessage(Text.of(String.format(" Memory: ~%d kB resident, %s, %d tables evicted", budget.getResident() / 1024,
+				budget.getLimit() > 0 ? String.format("%d kB limit", budget.getLimit() / 1024) : "no limit", budget.getEvictions())));
+		src.sendMessage(Text.of(String.format(" String pool: ~%d kB saved by deduplication", budget.getPooled() / 1024)));
 	}
 	@Listener
 	public void onGameStarted(GameStartedServerEvent event) {
@@ -88,6 +147,12 @@ public class LangSwitch {
         //commented. Sorry for the inconvenience
 //		de.dosmike.sponge.spannable.Test.test();
 	}
+	@Listener
+	public void onServerStopping(GameStoppingServerEvent event) {
+		messages.flush();
+		localeStore().flush();
+		statistics.close();
+	}
 	@Listener()
 	public void reload(GameReloadEvent event) {
         l("Reloading config...");
@@ -115,6 +180,24 @@ public class LangSwitch {
 					"This will also inform you about changes in dependencies.\n" +
 					"Set this value to true to allow this Plugin to check for Updates on Ore");
 			node.setValue(false);
+
+			node = root.getNode("PreloadLocales");
+			node.setComment("LangSwitch remembers how much each locale was used. This many of the most\n" +
+					"used locales are loaded in the background when plugins register, so players\n" +
+					"don't have to wait for translation files after a restart. Set to 0 to disable.");
+			node.setValue(3);
+
+			node = root.getNode("MemoryBudget");
+			node.setComment("Maximum memory in kilobytes for loaded translations of all plugins. If exceeded,\n" +
+					"translations that were not used for the longest time are unloaded and loaded\n" +
+					"again when needed. The default locale is always kept. Set to 0 for no limit.");
+			node.setValue(0);
+
+			node = root.getNode("TranslationStorage");
+			node.setComment("How translations are kept in memory: 'map' keeps a complete table for every locale,\n" +
+					"'overlay' keeps the default locale complete and for other locales only what they\n" +
+					"translate. Overlay uses less memory if translations are incomplete.");
+			node.setValue("map");
 			try {
 				configManager.save(root);
 			} catch (Exception e) {
@@ -126,11 +209,19 @@ public class LangSwitch {
 			String locale = root.getNode("DefaultLocale").getString(Locale.getDefault().toString());
 			l("Setting default locale to "+locale);
 			Locale previous = serverDefault;
-			serverDefault = Locale.forLanguageTag(locale.replace('_', '-'));
+			serverDefault = LocaleRegistry.forTag(locale);
 			loadLang(serverDefault);
 			unloadLangIfUnused(previous);
 
 			verbose = root.getNode("VerboseLogging").getBoolean(true);
+			preloadLocales = root.getNode("PreloadLocales").getInt(3);
+			budget.setLimit(root.getNode("MemoryBudget").getLong(0) * 1024);
+			try {
+				storage = LangTable.Storage.valueOf(root.getNode("TranslationStorage").getString("map").toUpperCase());
+			} catch (IllegalArgumentException e) {
+				w("Unknown TranslationStorage, using map");
+				storage = LangTable.Storage.MAP;
+			}
 
 			VersionChecker.setVersionCheckingEnabled(
 					Sponge.getPluginManager().fromInstance(this).get().getId(),
@@ -145,15 +236,19 @@ public class LangSwitch {
 	private Logger logger;
 	public static void l(String format, Object... args) { instance.logger.info(String.format(format, args)); }
 	public static void w(String format, Object... args) { instance.logger.warn(String.format(format, args)); }
+	/** events may be posted from async threads, so we can't use the cause stack */
+	static Cause cause() {
+		return Cause.of(EventContext.empty(), Sponge.getPluginManager().fromInstance(instance).get());
+	}
 	
-	static Map<String, Lang> plugins = new HashMap<>(); //allows us to inject translations
+	static PluginRegistry plugins = new PluginRegistry(); //allows us to inject translations
 	static String getID(Object plugin) {
 		Optional<PluginContainer> cont = Sponge.getPluginManager().fromInstance(plugin);
 		if (!cont.isPresent()) throw new RuntimeException("Supplied argument not a plugin!");
 		return cont.get().getId();
 	}
 	
-	static Locale serverDefault = Locale.getDefault();
+	static Locale serverDefault = LocaleRegistry.canonical(Locale.getDefault());
 	public static Locale getServerDefault() {
 		return serverDefault;
 	}
@@ -162,117 +257,270 @@ public class LangSwitch {
 	@ConfigDir(sharedRoot = true)
 	private Path configDir;
 	
-	static Map<UUID, Locale> playerLang = new HashMap<>();
+	/** maps online players to their {@link LocaleRegistry} id */
+	static PlayerLocaleMap playerLang = new PlayerLocaleMap();
+	/** seconds between writes of the player locale store */
+	private static final long STORE_FLUSH_INTERVAL = 30;
+	private static PlayerLocaleStore defaultStore;
+	/** @return the current PlayerLocaleStore provider, falling back to the built in one */
+	static PlayerLocaleStore localeStore() {
+		return Sponge.getServiceManager().provide(PlayerLocaleStore.class).orElse(defaultStore);
+	}
+	/** Looks up the locale of online players and falls back to the {@link PlayerLocaleStore} for
+	 * offline players. If a stored locale is not yet loaded, it will be loaded in the background.
+	 * @return the players locale or null if unknown */
+	static Locale getPlayerLocale(UUID playerID) {
+		Locale locale = LocaleRegistry.get(playerLang.get(playerID));
+		if (locale == null) {
+			locale = localeStore().get(playerID).orElse(null);
+			if (locale != null && !isLangRequested(locale)) loadLangAsync(locale);
+		}
+		return locale;
+	}
+	/** @return true if every plugin has this locale loaded or is loading it already */
+	private static boolean isLangRequested(Locale lang) {
+		int id = LocaleRegistry.id(lang);
+		for (Lang translation : plugins.values())
+			if (translation.getLoad(id) == null) return false;
+		return true;
+	}
+	/** Locale detection and translation warm-up is started in the async auth phase,
+	 * the join listener will pick up the result from here */
+	static Map<UUID, PendingLocale> pendingLocales = new ConcurrentHashMap<>();
+	static final class PendingLocale {
+		final CompletableFuture<Locale> locale;
+		/** {@link MemoryBudget#clock} when the player authenticated */
+		final long since = MemoryBudget.clock;
+		PendingLocale(CompletableFuture<Locale> locale) {
+			this.locale = locale;
+		}
+	}
+	/** seconds after which a pending locale is dropped, connections that break before joining don't disconnect */
+	private static final long PENDING_TIMEOUT = 120;
+	/** renderers handed out by the service, so lines of players that left can be dropped */
+	static final Set<LineRendererImpl> renderers = Collections.newSetFromMap(new WeakHashMap<>());
+	/** maximum time in seconds to hold the auth thread while waiting for the translations to load */
+	private static final long WARMUP_TIMEOUT = 5;
+
+	@Listener(order=Order.LATE)
+	public void authenticated(ClientConnectionEvent.Auth event) {
+		GameProfile profile = event.getProfile();
+		CompletableFuture<Locale> warmup = detectLocale(profile, event.getConnection().getAddress().getAddress())
+				.thenApply(locale->{
+					loadLang(locale);
+					return locale;
+				});
+		pendingLocales.put(profile.getUniqueId(), new PendingLocale(warmup));
+		try {
+			//we're not on the main thread, so waiting here will not stall the server
+			warmup.get(WARMUP_TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			if (verbose) w("Loading translations for %s is taking longer than expected", profile.getName().orElse(profile.getUniqueId().toString()));
+		} catch (InterruptedException|ExecutionException e) {
+			/* handled in joined */
+		}
+	}
+	@Listener(order=Order.POST)
+	@IsCancelled(Tristate.TRUE)
+	public void authCancelled(ClientConnectionEvent.Auth event) {
+		pendingLocales.remove(event.getProfile().getUniqueId());
+	}
+	@Listener(order=Order.POST)
+	@IsCancelled(Tristate.TRUE)
+	public void loginCancelled(ClientConnectionEvent.Login event) {
+		pendingLocales.remove(event.getProfile().getUniqueId());
+	}
+
 	@Listener(order=Order.FIRST)
 	public void joined(ClientConnectionEvent.Join event) {
 		Player player = event.getTargetEntity();
-		
-		Collection<ProfileProperty> props = player.getProfile().getPropertyMap().get("language");
-		Locale checkload = null;
+
+		PendingLocale authenticated = pendingLocales.remove(player.getUniqueId());
+		CompletableFuture<Locale> pending = authenticated == null ? null : authenticated.locale;
+		if (pending == null) { //auth was not observed, fall back to loading on join
+			pending = detectLocale(player.getProfile(), player.getConnection().getAddress().getAddress())
+					.thenApplyAsync(locale->{
+						loadLang(locale);
+						return locale;
+					}, async);
+		}
+		pending = pending.exceptionally(e->getServerDefault());
+		Locale locale = pending.getNow(null);
+		if (locale != null) {
+			playerLang.put(player.getUniqueId(), LocaleRegistry.id(locale));
+			statistics.startSession(player.getUniqueId(), locale, true);
+		} else {
+			pending.thenAccept(l->{
+				if (player.isOnline()) {
+					playerLang.put(player.getUniqueId(), LocaleRegistry.id(l));
+					statistics.startSession(player.getUniqueId(), l, true);
+				}
+			});
+		}
+	}
+
+	/** Reads the language the player selected last time from the store, or tries to guess it using GeoIP.
+	 * The returned future will not complete exceptionally. */
+	private static CompletableFuture<Locale> detectLocale(GameProfile profile, InetAddress address) {
+		Optional<Locale> stored = localeStore().get(profile.getUniqueId());
+		if (stored.isPresent()) return CompletableFuture.completedFuture(LocaleRegistry.canonical(stored.get()));
+		//previous versions stored the language in the game profile
+		Collection<ProfileProperty> props = profile.getPropertyMap().get("language");
 		for (ProfileProperty prop : props)
-			if (prop.getName().equalsIgnoreCase("language")) { 
+			if (prop.getName().equalsIgnoreCase("language")) {
 				String val=prop.getValue();
 				if (val != null && !val.isEmpty()) {
-					val = val.replace('_', '-');
-					checkload=Locale.forLanguageTag(val);
-					playerLang.put(player.getProfile().getUniqueId(), checkload);
+					return CompletableFuture.completedFuture(LocaleRegistry.forTag(val));
 				}
 				break;
 			}
-		
-		if (checkload==null)
-			GeoIPService.getProvider().getLocaleFor(player).whenCompleteAsync((ol, e)->{
-				Locale locale;
+
+		CompletableFuture<Locale> result = new CompletableFuture<>();
+		try {
+			GeoIPService.getProvider().getLocaleFor(address).whenComplete((ol, e)->{
 				if (e != null) {
 					//probably a connection from localhost, not providing a ip to lookup
-					locale = getServerDefault();
+					result.complete(getServerDefault());
 				} else {
-					locale = ol.orElse(getServerDefault());
+					result.complete(LocaleRegistry.canonical(ol.orElse(getServerDefault())));
 				}
-				playerLang.put(player.getProfile().getUniqueId(), locale);
-				loadLang(locale);
 			});
-		else
-			loadLang(checkload);
+		} catch (RuntimeException e) {
+			result.complete(getServerDefault());
+		}
+		return result;
 	}
 	
 	@Listener
 	public void part(ClientConnectionEvent.Disconnect event) {
-		Locale lang = playerLang.get(event.getTargetEntity().getUniqueId());
-		event.getTargetEntity().getProfile().getPropertyMap().removeAll("language");
-		event.getTargetEntity().getProfile().addProperty(ProfileProperty.of("language", lang.toString()));
-		playerLang.remove(event.getTargetEntity().getUniqueId());
+		pendingLocales.remove(event.getTargetEntity().getUniqueId());
+		Locale lang = LocaleRegistry.get(playerLang.remove(event.getTargetEntity().getUniqueId()));
+		statistics.endSession(event.getTargetEntity().getUniqueId());
+		synchronized (renderers) {
+			for (LineRendererImpl renderer : renderers) renderer.remove(event.getTargetEntity().getUniqueId());
+		}
+		if (lang == null) return;
+		localeStore().put(event.getTargetEntity().getUniqueId(), lang);
 
 		unloadLangIfUnused(lang);
 	}
 	
 	static void playerChangedLang(GameProfile profile, Locale newLang) {
-		Locale lang = playerLang.get(profile.getUniqueId());
-		profile.getPropertyMap().removeAll("language");
-		profile.addProperty(ProfileProperty.of("language", newLang.toString()));
-		playerLang.put(profile.getUniqueId(), newLang);
-		loadLang(newLang);
+		localeStore().put(profile.getUniqueId(), newLang);
+		Locale lang = LocaleRegistry.get(playerLang.put(profile.getUniqueId(), LocaleRegistry.id(newLang)));
+		statistics.startSession(profile.getUniqueId(), newLang, false);
+		//called from the /language command on the main thread, translations follow with a reload event
+		loadLangAsync(newLang);
+		if (!newLang.equals(lang))
+			Sponge.getEventManager().post(new LocaleChangedEventImpl(cause(), profile, lang, newLang));
 		unloadLangIfUnused(lang);
 	}
 
 	static void loadSingleLang(Locale lang, String pluginID, Lang pluginTranslation) {
-		async.execute(()->loadSingleLangRunner(lang, pluginID, pluginTranslation));
+		loader.submit(pluginID, pluginTranslation, lang, LoadScheduler.Priority.ONLINE);
+	}
+	/** queue the most used locales to load for this plugin with low priority */
+	static void preloadMostUsed(String pluginID, Lang pluginTranslation) {
+		for (Locale locale : statistics.getMostUsed(preloadLocales))
+			loader.submit(pluginID, pluginTranslation, locale, LoadScheduler.Priority.SPECULATIVE);
+	}
+	/** Loads the locale for the plugin on the current thread, unless some other thread is already loading it.
+	 * @return a future completing when the locale was loaded */
+	static CompletableFuture<Void> loadSingleLangRunner(Locale lang, String pluginID, Lang pluginTranslation) {
+		int id = LocaleRegistry.id(lang);
+		CompletableFuture<Void> load = new CompletableFuture<>();
+		CompletableFuture<Void> running = pluginTranslation.claimLoad(id, load);
+		if (running != null) return running; //prevent stacking
+		try {
+			loadTranslations(lang, id, pluginID, pluginTranslation);
+			load.complete(null);
+		} catch (Throwable e) {
+			//the failed load stays registered, so the file is not read again on every lookup until the next reload
+			w("Could not load translations for %s in %s: %s", pluginID, lang.toString(), e.getMessage());
+			load.completeExceptionally(e);
+			return load;
+		}
+		Sponge.getEventManager().post(new TranslationsReloadedEventImpl(cause(), pluginID, pluginTranslation, Collections.singleton(lang)));
+		return load;
 	}
-	static void loadSingleLangRunner(Locale lang, String pluginID, Lang pluginTranslation) {
-		if (pluginTranslation.loaded.contains(lang)) return;
+	private static void loadTranslations(Locale lang, int id, String pluginID, Lang pluginTranslation) {
 		if (verbose) l("Loading translations for %s in %s...", pluginID, lang.toString());
-		pluginTranslation.loaded.add(lang); //prevent stacking
 
-		File to = instance.configDir.resolve(pluginID).resolve("Lang").resolve(lang.toString()+".lang").toFile();
-		if (!to.exists()) {
-			to = new File(to.getParentFile(), lang.getLanguage()+".lang");
-			if (!to.exists()) {
+		//merge the fallback chain from least to most specific, so every lookup is a single probe
+		Locale[] chain = LocaleRegistry.fallbackChain(id);
+		Map<String, String> values = null;
+		Locale source = null;
+		Path langDir = instance.configDir.resolve(pluginID).resolve("Lang");
+		for (int i = chain.length-1; i >= 0; i--) {
+			Map<String, String> file = LangFile.read(langDir.resolve(chain[i].toString()+".lang").toFile(), "");
+			if (file == null) continue;
+			source = chain[i];
+			if (values == null) values = file;
+			else values.putAll(file);
+		}
+		String[] namespaces = findNamespaces(langDir, chain);
+		if (values == null) {
+			if (namespaces.length == 0) {
 				if (verbose) l("No translation file for "+lang.getDisplayLanguage()+" was found!");
+				pluginTranslation.removeTranslation(id);
 				return;
-			} else {
-				if (verbose) l("No country specifig translations for "+lang.getDisplayLanguage()+", switching to "+lang.getLanguage()+".lang");
 			}
+			values = new HashMap<>();
+			source = lang;
 		}
-//		l("Trying to load " + to.getAbsolutePath());
+		if (verbose && !source.equals(lang)) l("No country specifig translations for "+lang.getDisplayLanguage()+", switching to "+source.toString()+".lang");
+		LangTable table = LangTable.create(pluginTranslation, id, values);
+		if (namespaces.length > 0) table.namespaces = new Namespaces(pluginID, pluginTranslation, id, chain, namespaces);
+		pluginTranslation.putTable(id, table);
 
-		BufferedReader br=null;
-		try {
-			br = new BufferedReader(new InputStreamReader(new FileInputStream(to), "UTF8"));
-			String line;
-			while ((line=br.readLine())!=null) {
-				if (line.isEmpty() || line.startsWith("#")) continue;
-				int split = first(line.indexOf(':'), line.indexOf('=')); //allow the usage of either key.sub:value or key.sub=value
-				if (split<=0) throw new RuntimeException("Translations are formatted [\\w\\.]+:.* (numers, letters underscores and dots > colon > some text)");
-				String k=line.substring(0, split);
-				if (!k.matches("[\\w\\.]+")) throw new RuntimeException("Translations are formatted [\\w\\.]+:.* (numers, letters underscores and dots > colon > some text)");
-				String v=line.substring(split+1);
-//							l("  Adding %s in %s with: %s", k, getLocale().toString(), v);
-				pluginTranslation.addTranslation(k, lang, v);
-			}
+		//report keys that will fall back to the default once instead of every lookup
+		LangTable defaults = pluginTranslation.getTable(LocaleRegistry.id(pluginTranslation.def));
+		if (verbose && defaults != null && defaults != table) {
+			int missing = 0;
+			for (String key : defaults.asMap().keySet())
+				if (!table.has(key)) missing++;
+			if (missing > 0)
+				l("%d translations for %s in %s will fall back to %s", missing, pluginID, lang.toString(), pluginTranslation.def.toString());
 		}
-		catch (FileNotFoundException|SecurityException e) {}
-		catch (IOException|RuntimeException e) {
-			e.printStackTrace();
+	}
+	/** @return names of all namespace files in the locale directories along the chain */
+	private static String[] findNamespaces(Path langDir, Locale[] chain) {
+		Set<String> names = new TreeSet<>();
+		for (Locale locale : chain) {
+			File[] files = langDir.resolve(locale.toString()).toFile().listFiles((dir, name)->name.endsWith(".lang"));
+			if (files == null) continue;
+			for (File file : files) {
+				String name = file.getName().substring(0, file.getName().length()-5);
+				if (name.matches("\\w+")) names.add(name);
+			}
 		}
-		finally {
-			try { br.close(); } catch (Exception e) {}
+		return names.toArray(new String[0]);
+	}
+	/** reads and merges the namespace file along the fallback chain, keys will be prefixed with the namespace */
+	static Map<String, String> readNamespace(String pluginID, Locale[] chain, String namespace) {
+		Path langDir = instance.configDir.resolve(pluginID).resolve("Lang");
+		Map<String, String> values = new HashMap<>();
+		for (int i = chain.length-1; i >= 0; i--) {
+			Map<String, String> file = LangFile.read(langDir.resolve(chain[i].toString()).resolve(namespace+".lang").toFile(), namespace+".");
+			if (file != null) values.putAll(file);
 		}
+		return values;
 	}
+	/** loads the locale for all plugins on the current thread, waiting for loads that are already running */
 	public static void loadLang(Locale lang) {
+		List<CompletableFuture<Void>> loads = new LinkedList<>();
 		for (Entry<String, Lang> entry : plugins.entrySet()) {
-			loadSingleLangRunner(lang, entry.getKey(), entry.getValue());
+			loads.add(loadSingleLangRunner(lang, entry.getKey(), entry.getValue()));
+		}
+		try {
+			CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).join();
+		} catch (CompletionException e) {
+			e.getCause().printStackTrace();
 		}
 	}
-	
-	private static int first(int a, int b) {
-		return (a>=0 && b>=0 //both valid
-				? (a<b?a:b) //minimum
-				: (a>=0 //only a valid
-				  ? a //a
-				  : (b>=0) //only b valid
-				    ? b //b
-				    : -1 //nothing
-				));
+	/** like {@link #loadLang(Locale)} but does not block, skips plugins that already have this locale loaded */
+	static void loadLangAsync(Locale lang) {
+		loader.submit(lang, LoadScheduler.Priority.ONLINE);
 	}
 	
 	public static void unloadLangIfUnused(Locale lang) {
@@ -282,11 +530,25 @@ public class LangSwitch {
 				lang.getLanguage().equals(serverDefault.getLanguage())
 			)
 		   ) { return; }
-		for (Locale l : playerLang.values()) if (l.equals(lang)) return;
+		int id = LocaleRegistry.id(lang);
+		if (playerLang.containsValue(id)) return;
 		for (Lang l : plugins.values()) {
-			l.removeTranslation(lang);
-			l.loaded.remove(lang);
+			l.removeTranslation(id);
+			l.markUnloaded(id);
+		}
+	}
+
+	/** @return ids of all locales used by online players or players that are currently joining */
+	static BitSet localesInUse() {
+		BitSet inUse = playerLang.values();
+		for (PendingLocale entry : pendingLocales.values()) {
+			CompletableFuture<Locale> pending = entry.locale;
+			//locales still being detected are not loaded yet either
+			if (!pending.isDone() || pending.isCompletedExceptionally()) continue;
+			Locale locale = pending.getNow(null);
+			if (locale != null) inUse.set(LocaleRegistry.id(locale));
 		}
+		return inUse;
 	}
 
 	public static abstract class LocaleRunnable implements Runnable {
@@ -296,16 +558,19 @@ public class LangSwitch {
 	}
 
 	public static void forceReloadTranslations() {
-        Set<Locale> allLoaded = new HashSet<>(playerLang.values());
-        allLoaded.add(serverDefault);
+        //files may have been fixed in the meantime
+        for (Lang lang : plugins.values()) lang.clearFailed();
+        BitSet allLoaded = playerLang.values();
+        allLoaded.set(LocaleRegistry.id(serverDefault));
         for (Lang lang : plugins.values()) {
-            for (Locale locale : allLoaded) {
-                lang.removeTranslation(locale);
-                lang.loaded.remove(locale);
+            for (int locale = allLoaded.nextSetBit(0); locale >= 0; locale = allLoaded.nextSetBit(locale+1)) {
+                //the current table stays in use until the new one was loaded
+                lang.markUnloaded(locale);
             }
         }
-        for (Locale locale : allLoaded) {
-            loadLang(locale);
+        //the scheduler puts the default first, other locales compare against it when loading
+        for (int locale = allLoaded.nextSetBit(0); locale >= 0; locale = allLoaded.nextSetBit(locale+1)) {
+            loader.submit(LocaleRegistry.get(locale), LoadScheduler.Priority.ONLINE);
         }
     }
 }
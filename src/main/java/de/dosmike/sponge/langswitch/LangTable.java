@@ -0,0 +1,116 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** All translations of one plugin in one locale.<br>
+ * Tables are built completely by the loader and never modified afterwards,
+ * so they can be read from any thread without locking. Loading or unloading
+ * a locale is replacing or dropping the reference to its table.<br>
+ * Keys and values are deduplicated through the {@link StringPool} when building
+ * a table. */
+abstract class LangTable {
+
+	/** how tables are stored in memory, set with the TranslationStorage config value */
+	enum Storage {
+		/** every locale has a complete hash map */
+		MAP,
+		/** the default locale is a dense array, other locales only store what they translate */
+		OVERLAY
+	}
+
+	/** approximate retained size, set by implementations */
+	long estimatedBytes;
+	/** approximate memory saved through the string pool, set by implementations */
+	long pooledBytes;
+	/** {@link MemoryBudget#clock} at the last lookup */
+	private long lastAccess = MemoryBudget.clock;
+	/** lazily loaded parts of this locale, set by the loader before the table is published */
+	Namespaces namespaces = null;
+
+	/** Creates a table in the configured storage mode.
+	 * @param owner the plugin translation this table will belong to
+	 * @param locale the locale id this table will be stored for */
+	static LangTable create(Lang owner, int locale, Map<String, String> values) {
+		if (LangSwitch.storage == Storage.OVERLAY) {
+			if (locale == LocaleRegistry.id(owner.def))
+				return new DenseLangTable(owner.keys, values);
+			LangTable base = owner.getTable(LocaleRegistry.id(owner.def));
+			return new OverlayLangTable(owner.keys, base instanceof DenseLangTable ? (DenseLangTable)base : null, values);
+		}
+		owner.keys.register(values.keySet());
+		return new MapLangTable(values);
+	}
+
+	/** puts the string through the pool and counts the saved memory */
+	String pool(String string) {
+		String pooled = StringPool.intern(string);
+		if (pooled != string) pooledBytes += MemoryBudget.estimate(pooled);
+		return pooled;
+	}
+
+	void touch() {
+		long now = MemoryBudget.clock;
+		if (lastAccess != now) lastAccess = now; //don't dirty the cache line on every lookup
+	}
+
+	/** Looks the path up in its namespace table first and then in this table, so paths
+	 * inside a namespace may still be defined in the main file. Namespaces that are
+	 * not loaded yet are skipped.
+	 * @param slot the slot of path or {@link KeyIndex#NONE} if not known
+	 * @return the translation for this path in this locale or null */
+	String lookup(int slot, String path) {
+		Namespaces ns = namespaces;
+		if (ns != null) {
+			int index = ns.find(path);
+			LangTable part = index < 0 ? null : ns.get(index);
+			String value = part == null ? null : part.get(slot, path);
+			if (value != null) return value;
+		}
+		return get(slot, path);
+	}
+
+	/** @return the translation for this path in this locale or null */
+	abstract String get(String path);
+	/** Lookup for callers that already know the {@link KeyIndex} slot of the path.
+	 * Tables that are not indexed by slot use the path instead.
+	 * @param slot the slot of path or {@link KeyIndex#NONE} if not known
+	 * @return the translation for this path in this locale or null */
+	String get(int slot, String path) {
+		return get(path);
+	}
+
+	boolean has(String path) {
+		return get(path) != null;
+	}
+
+	/** @return the amount of translations in this locale */
+	abstract int size();
+
+	/** @return a new map with all translations in this locale */
+	abstract Map<String, String> asMap();
+
+	long getLastAccess() {
+		return lastAccess;
+	}
+
+	/** @return the approximate amount of memory retained by this table */
+	long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+	/** @return the approximate amount of memory saved by reusing pooled strings */
+	long getPooledBytes() {
+		return pooledBytes;
+	}
+
+	/** @return a copy of this table with the path set to the value, or removed if value is null */
+	LangTable with(String path, String value) {
+		Map<String, String> copy = new HashMap<>(asMap());
+		if (value == null) copy.remove(path);
+		else copy.put(path, value);
+		LangTable table = new MapLangTable(copy);
+		table.namespaces = namespaces;
+		return table;
+	}
+
+}
@@ -1,9 +1,13 @@
 package de.dosmike.sponge.langswitch;
 
 import de.dosmike.sponge.languageservice.API.LanguageService;
+import de.dosmike.sponge.languageservice.API.LineRenderer;
+import de.dosmike.sponge.languageservice.API.Localized;
 import de.dosmike.sponge.languageservice.API.PluginTranslation;
+import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.text.Text;
 
 import java.util.Locale;
 import java.util.Optional;
@@ -11,11 +15,13 @@ import java.util.Optional;
 public class LanguageServiceProvider implements LanguageService {
 
 	public LocalizedString local(String plugin, String path) {
-		return LangSwitch.plugins.containsKey(plugin)?new LocalizedString(LangSwitch.plugins.get(plugin), path):new LocalizedString(path);
+		Lang l = LangSwitch.plugins.get(plugin);
+		return l!=null?new LocalizedString(l, path):new LocalizedString(path);
 	}
 
 	public LocalizedText localText(String plugin, String path) {
-		return LangSwitch.plugins.containsKey(plugin)?new LocalizedText(LangSwitch.plugins.get(plugin), path):new LocalizedText(path);
+		Lang l = LangSwitch.plugins.get(plugin);
+		return l!=null?new LocalizedText(l, path):new LocalizedText(path);
 	}
 
 	public Optional<PluginTranslation> getTranslation(Object plugin) {
@@ -27,16 +33,43 @@ public class LanguageServiceProvider implements LanguageService {
 	public PluginTranslation registerTranslation(Object plugin) {
 		String id = LangSwitch.getID(plugin);
 //		LangSwitch.l("Register plugin "+id+" with "+LangSwitch.serverDefault.toString()+" as default language");
-		Lang newLang = new Lang(LangSwitch.serverDefault);
-		LangSwitch.plugins.put(id, newLang);
+		Lang newLang = new Lang(id, LangSwitch.serverDefault);
+		LangSwitch.plugins.register(id, newLang);
 		LangSwitch.loadSingleLang(LangSwitch.serverDefault, id, newLang);
+		LangSwitch.preloadMostUsed(id, newLang);
+		Sponge.getEventManager().post(new TranslationRegistryEventImpl.Register(LangSwitch.cause(), id, newLang));
 		return newLang;
 	}
 
+	public boolean unregisterTranslation(Object plugin) {
+		String id = LangSwitch.getID(plugin);
+		Lang l = LangSwitch.plugins.unregister(id);
+		if (l == null) return false;
+		Sponge.getEventManager().post(new TranslationRegistryEventImpl.Unregister(LangSwitch.cause(), id, l));
+		return true;
+	}
+
+	public void send(CommandSource receiver, Localized<?> message) {
+		Object resolved = message.orLiteral(receiver);
+		LangSwitch.messages.add(receiver, resolved instanceof Text ? (Text) resolved : Text.of(resolved));
+	}
+
+	public void send(CommandSource receiver, Text message) {
+		LangSwitch.messages.add(receiver, message);
+	}
+
+	public LineRenderer createLineRenderer() {
+		LineRendererImpl renderer = new LineRendererImpl();
+		synchronized (LangSwitch.renderers) {
+			LangSwitch.renderers.add(renderer);
+		}
+		return renderer;
+	}
+
 	public Locale getSelectedLocale(CommandSource target) {
 		Locale l = LangSwitch.serverDefault;
 		if (target instanceof Player) {
-			l = LangSwitch.playerLang.get(((Player) target).getUniqueId());
+			l = LangSwitch.getPlayerLocale(((Player) target).getUniqueId());
 			if (l == null) return ((Player) target).getLocale();
 		}
 		return l;
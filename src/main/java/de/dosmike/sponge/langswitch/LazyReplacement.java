@@ -0,0 +1,96 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/** Replacement value that is only computed when the placeholder is actually used.
+ * Values are computed at most once per resolve call through {@link #scope(Map, Locale)},
+ * later calls compute them again so they stay current. */
+final class LazyReplacement {
+
+	private final Function<Locale, ?> function;
+
+	private LazyReplacement(Function<Locale, ?> function) {
+		this.function = function;
+	}
+
+	/** @return the value wrapped if it's a Supplier or Function, the value itself otherwise */
+	@SuppressWarnings("unchecked")
+	static Object wrap(Object value) {
+		if (value instanceof Supplier) {
+			Supplier<?> supplier = (Supplier<?>) value;
+			return new LazyReplacement(locale->supplier.get());
+		}
+		if (value instanceof Function)
+			return new LazyReplacement((Function<Locale, ?>) value);
+		return value;
+	}
+
+	/** @return the value for non-lazy objects or the computed value */
+	static Object unwrap(Object value, Locale locale) {
+		return value instanceof LazyReplacement ? ((LazyReplacement) value).get(locale) : value;
+	}
+
+	Object get(Locale locale) {
+		Object value = function.apply(locale);
+		return value == null ? "null" : value;
+	}
+
+	/** @return true if any of the replacements is computed lazily */
+	static boolean containsLazy(Map<String, Object> replacements) {
+		for (Object value : replacements.values())
+			if (value instanceof LazyReplacement) return true;
+		return false;
+	}
+
+	/** @return a view of the replacements that computes lazy values at most once, or the
+	 * replacements themselves if none are lazy. Create one scope per resolve call */
+	static Map<String, Object> scope(Map<String, Object> replacements, Locale locale) {
+		return containsLazy(replacements) ? new Scope(replacements, locale) : replacements;
+	}
+
+	/** read-only view over the replacements, memoizing computed values for one resolve call */
+	private static final class Scope extends AbstractMap<String, Object> {
+		private final Map<String, Object> replacements;
+		private final Locale locale;
+		private final Map<Object, Object> computed = new HashMap<>();
+
+		Scope(Map<String, Object> replacements, Locale locale) {
+			this.replacements = replacements;
+			this.locale = locale;
+		}
+
+		@Override
+		public Object get(Object key) {
+			Object value = replacements.get(key);
+			if (!(value instanceof LazyReplacement)) return value;
+			return computed.computeIfAbsent(key, k->((LazyReplacement) value).get(locale));
+		}
+		@Override
+		public boolean containsKey(Object key) {
+			return replacements.containsKey(key);
+		}
+		@Override
+		public int size() {
+			return replacements.size();
+		}
+		@Override
+		public Set<String> keySet() {
+			return replacements.keySet();
+		}
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			Set<Entry<String, Object>> entries = new HashSet<>();
+			for (String key : replacements.keySet())
+				entries.add(new SimpleImmutableEntry<>(key, get(key)));
+			return entries;
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.LineRenderer;
+import de.dosmike.sponge.languageservice.API.Localized;
+import org.spongepowered.api.text.Text;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+class LineRendererImpl implements LineRenderer {
+
+	/** everything a rendered line depends on */
+	private static final class Line {
+		Lang lang;
+		/** null for lines rendered from other Localized implementations, these never match */
+		String path;
+		int locale;
+		int version;
+		Object contextColor, contextStyle;
+		Map<String, Object> replacements;
+		Text rendered;
+
+		boolean matches(LocalizedText text, int locale) {
+			return path != null && lang == text.getLang() && path.equals(text.getPath()) && this.locale == locale
+					&& (lang == null || version == lang.getVersion())
+					&& Objects.equals(contextColor, text.getContextColor()) && Objects.equals(contextStyle, text.getContextStyle())
+					&& replacements.equals(text.getReplacements())
+					&& immutable(replacements); //anything else may render differently with equal references
+		}
+	}
+
+	/** @return true if all values are of types that can't change once passed, so equals is enough to compare them */
+	private static boolean immutable(Map<String, Object> replacements) {
+		for (Object value : replacements.values()) {
+			if (!(value instanceof String || value instanceof Text || value instanceof Boolean || value instanceof Character
+					|| value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+					|| value instanceof Double || value instanceof Float || value instanceof BigInteger || value instanceof BigDecimal
+					|| value instanceof Enum || value instanceof UUID || value instanceof Locale))
+				return false;
+		}
+		return true;
+	}
+
+	/** lines of one receiver, guarded by synchronizing on the instance */
+	private static final class Lines {
+		Line[] lines = new Line[16];
+		final BitSet dirty = new BitSet();
+	}
+
+	private final Map<UUID, Lines> receivers = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean update(UUID receiver, int line, Localized<Text> text) {
+		if (line < 0) throw new IndexOutOfBoundsException("Line can't be negative");
+		Lines lines = receivers.computeIfAbsent(receiver, uuid->new Lines());
+		synchronized (lines) {
+			if (line >= lines.lines.length) lines.lines = Arrays.copyOf(lines.lines, Math.max(line+1, lines.lines.length*2));
+			Line current = lines.lines[line];
+			Line next = new Line();
+			if (text instanceof LocalizedText) {
+				LocalizedText localized = (LocalizedText) text;
+				int locale = LocaleRegistry.id(LangSwitch.getPlayerLocale(receiver));
+				if (current != null && current.matches(localized, locale)) return false;
+
+				next.lang = localized.getLang();
+				next.version = next.lang == null ? 0 : next.lang.getVersion(); //read before rendering, so a concurrent change marks it dirty again
+				next.path = localized.getPath();
+				next.locale = locale;
+				next.contextColor = localized.getContextColor();
+				next.contextStyle = localized.getContextStyle();
+				next.replacements = new HashMap<>(localized.getReplacements());
+			}
+			//can't tell what a foreign implementation depends on, so these are rendered on every update
+			next.rendered = text.orLiteral(receiver);
+			lines.lines[line] = next;
+			if (current != null && current.rendered.equals(next.rendered)) return false;
+			lines.dirty.set(line);
+			return true;
+		}
+	}
+
+	@Override
+	public Text getLine(UUID receiver, int line) {
+		Lines lines = receivers.get(receiver);
+		if (lines == null) return Text.EMPTY;
+		synchronized (lines) {
+			Line rendered = line >= 0 && line < lines.lines.length ? lines.lines[line] : null;
+			return rendered == null ? Text.EMPTY : rendered.rendered;
+		}
+	}
+
+	@Override
+	public BitSet takeDirty(UUID receiver) {
+		Lines lines = receivers.get(receiver);
+		if (lines == null) return new BitSet();
+		synchronized (lines) {
+			BitSet dirty = (BitSet) lines.dirty.clone();
+			lines.dirty.clear();
+			return dirty;
+		}
+	}
+
+	@Override
+	public void clear(UUID receiver, int line) {
+		Lines lines = receivers.get(receiver);
+		if (lines == null) return;
+		synchronized (lines) {
+			if (line >= 0 && line < lines.lines.length) lines.lines[line] = null;
+		}
+	}
+
+	@Override
+	public void remove(UUID receiver) {
+		receivers.remove(receiver);
+	}
+
+}
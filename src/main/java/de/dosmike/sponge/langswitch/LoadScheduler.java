@@ -0,0 +1,198 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/** Orders background translation loads, so the locales that are actually needed
+ * are loaded first: The server default, then locales of online players (more players
+ * first) and finally speculative preloads. Namespaces requested by lookups are queued
+ * the same way. A fixed number of workers drains the queue, so a task queued later
+ * with a higher priority overtakes the ones still waiting.<br>
+ * Requesting a load that is already queued will not queue it again, but may raise
+ * its priority. */
+class LoadScheduler {
+
+	enum Priority {
+		/** weighted by the amount of online players using the locale */
+		ONLINE,
+		/** loaded when nothing else is left */
+		SPECULATIVE
+	}
+
+	private static final class Task implements Comparable<Task> {
+		final String key;
+		final int locale;
+		final Supplier<CompletableFuture<Void>> load;
+		final long sequence;
+		final long queuedAt = System.nanoTime();
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+		long weight;
+
+		Task(String key, int locale, Supplier<CompletableFuture<Void>> load, long weight, long sequence) {
+			this.key = key;
+			this.locale = locale;
+			this.load = load;
+			this.weight = weight;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Task o) {
+			int c = Long.compare(o.weight, weight);
+			return c != 0 ? c : Long.compare(sequence, o.sequence);
+		}
+	}
+
+	/** loads are mostly disk bound, more workers would only undermine the order */
+	private static final int MAX_WORKERS = 2;
+
+	private final Executor executor;
+	private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+	private final Map<String, Task> queued = new ConcurrentHashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicInteger workers = new AtomicInteger();
+
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong totalWait = new AtomicLong();
+	private final AtomicLong maxWait = new AtomicLong();
+
+	LoadScheduler(Executor executor) {
+		this.executor = executor;
+	}
+
+	private static String key(String pluginID, int locale) {
+		return pluginID+"@"+locale;
+	}
+	private static long weight(int locale, Priority priority) {
+		if (locale == LocaleRegistry.id(LangSwitch.getServerDefault()))
+			return Long.MAX_VALUE;
+		if (priority == Priority.SPECULATIVE)
+			return 0;
+		return 1 + LangSwitch.playerLang.count(locale);
+	}
+
+	/** queue the locale to be loaded for the plugin, unless it's already loaded or queued
+	 * @return a future completing when the locale was loaded */
+	CompletableFuture<Void> submit(String pluginID, Lang translation, Locale locale, Priority priority) {
+		int id = LocaleRegistry.id(locale);
+		CompletableFuture<Void> running = translation.getLoad(id);
+		if (running != null) return running;
+		return enqueue(key(pluginID, id), id, priority,
+				()->LangSwitch.loadSingleLangRunner(locale, pluginID, translation));
+	}
+	/** queue a namespace of a loaded locale to be read, unless it's already queued
+	 * @param read reads the namespace on the loader thread
+	 * @return a future completing when the namespace was read */
+	CompletableFuture<Void> submit(String pluginID, Locale locale, String namespace, Runnable read, Priority priority) {
+		int id = LocaleRegistry.id(locale);
+		return enqueue(key(pluginID, id)+"/"+namespace, id, priority, ()->{
+			try {
+				read.run();
+				return CompletableFuture.completedFuture(null);
+			} catch (RuntimeException e) {
+				CompletableFuture<Void> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+		});
+	}
+	private CompletableFuture<Void> enqueue(String key, int locale, Priority priority, Supplier<CompletableFuture<Void>> load) {
+		long weight = weight(locale, priority);
+		Task task;
+		synchronized (queued) {
+			task = queued.get(key);
+			if (task != null) {
+				if (task.weight < weight && queue.remove(task)) {
+					task.weight = weight;
+					queue.add(task);
+				}
+				return task.done;
+			}
+			task = new Task(key, locale, load, weight, sequence.getAndIncrement());
+			queued.put(key, task);
+			queue.add(task);
+		}
+		if (startWorker()) executor.execute(this::drain);
+		return task.done;
+	}
+	/** queue the locale to be loaded for all registered plugins
+	 * @return a future completing when the locale was loaded for all plugins */
+	CompletableFuture<Void> submit(Locale locale, Priority priority) {
+		List<CompletableFuture<Void>> loads = new LinkedList<>();
+		for (Map.Entry<String, Lang> entry : LangSwitch.plugins.entrySet())
+			loads.add(submit(entry.getKey(), entry.getValue(), locale, priority));
+		return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]));
+	}
+
+	/** @return true if the caller may start a new worker */
+	private boolean startWorker() {
+		int running;
+		do {
+			running = workers.get();
+			if (running >= MAX_WORKERS) return false;
+		} while (!workers.compareAndSet(running, running+1));
+		return true;
+	}
+	/** worker loop, always picks the most important task until the queue is empty */
+	private void drain() {
+		do {
+			Task task;
+			while ((task = poll()) != null) run(task);
+			workers.decrementAndGet();
+			//a task queued after the last poll may have found all workers busy
+		} while (!queue.isEmpty() && startWorker());
+	}
+	private Task poll() {
+		synchronized (queued) {
+			Task task = queue.poll();
+			if (task != null) queued.remove(task.key);
+			return task;
+		}
+	}
+	private void run(Task task) {
+		long wait = System.nanoTime() - task.queuedAt;
+		totalWait.addAndGet(wait);
+		maxWait.accumulateAndGet(wait, Math::max);
+		completed.incrementAndGet();
+		CompletableFuture<Void> load;
+		try {
+			load = task.load.get();
+		} catch (RuntimeException e) {
+			task.done.completeExceptionally(e);
+			return;
+		}
+		load.whenComplete((v, e)->{
+			if (e != null) task.done.completeExceptionally(e);
+			else task.done.complete(null);
+		});
+	}
+
+	/** @return the amount of loads waiting to be processed */
+	int getQueueDepth() {
+		return queue.size();
+	}
+	/** @return the amount of loads taken from the queue */
+	long getCompleted() {
+		return completed.get();
+	}
+	/** @return average time in milliseconds a load waited in the queue */
+	long getAverageWait() {
+		long count = completed.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWait.get() / count);
+	}
+	/** @return longest time in milliseconds a load waited in the queue */
+	long getMaxWait() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWait.get());
+	}
+
+}
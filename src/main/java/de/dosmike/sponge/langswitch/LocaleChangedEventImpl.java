@@ -0,0 +1,45 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.LocaleChangedEvent;
+import org.spongepowered.api.event.cause.Cause;
+import org.spongepowered.api.event.impl.AbstractEvent;
+import org.spongepowered.api.profile.GameProfile;
+
+import java.util.Locale;
+import java.util.Optional;
+
+class LocaleChangedEventImpl extends AbstractEvent implements LocaleChangedEvent {
+
+	private final Cause cause;
+	private final GameProfile profile;
+	private final Locale oldLocale;
+	private final Locale newLocale;
+
+	LocaleChangedEventImpl(Cause cause, GameProfile profile, Locale oldLocale, Locale newLocale) {
+		this.cause = cause;
+		this.profile = profile;
+		this.oldLocale = oldLocale;
+		this.newLocale = newLocale;
+	}
+
+	@Override
+	public Cause getCause() {
+		return cause;
+	}
+
+	@Override
+	public GameProfile getProfile() {
+		return profile;
+	}
+
+	@Override
+	public Optional<Locale> getOldLocale() {
+		return Optional.ofNullable(oldLocale);
+	}
+
+	@Override
+	public Locale getNewLocale() {
+		return newLocale;
+	}
+
+}
@@ -0,0 +1,99 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Canonical table of all locales LangSwitch has seen so far.<br>
+ * Every locale gets a small, dense and never changing id, so translation and
+ * state tables can simply be indexed with it instead of hashing locales.
+ * Ids are only valid for the current server session. */
+public final class LocaleRegistry {
+
+	/** id used for null or unknown locales */
+	public static final int NONE = -1;
+
+	private static final Map<Locale, Integer> ids = new ConcurrentHashMap<>();
+	private static final Map<String, Locale> tags = new ConcurrentHashMap<>();
+	private static volatile Locale[] locales = new Locale[16];
+	private static volatile int size = 0;
+	private static volatile Locale[][] chains = new Locale[16][];
+
+	private LocaleRegistry() {}
+
+	/** @return the id for this locale, assigning a new one if required or {@link #NONE} for null */
+	public static int id(Locale locale) {
+		if (locale == null) return NONE;
+		Integer id = ids.get(locale);
+		return id != null ? id : register(locale);
+	}
+	private static synchronized int register(Locale locale) {
+		Integer id = ids.get(locale);
+		if (id != null) return id;
+		Locale[] table = locales;
+		if (size == table.length) table = Arrays.copyOf(table, size*2);
+		int next = size;
+		table[next] = locale;
+		locales = table;
+		//size has to cover the id before other threads can see it
+		size = next+1;
+		ids.put(locale, next);
+		return next;
+	}
+
+	/** @return the locale registered with this id or null if the id is unknown */
+	public static Locale get(int id) {
+		Locale[] table = locales;
+		return (id < 0 || id >= table.length) ? null : table[id];
+	}
+
+	/** @return the canonical instance for this locale */
+	public static Locale canonical(Locale locale) {
+		return get(id(locale));
+	}
+
+	/** Parses a locale tag in the format language_COUNTRY or language-COUNTRY.
+	 * @return the canonical instance for this locale */
+	public static Locale forTag(String tag) {
+		Locale locale = tags.get(tag);
+		if (locale == null) {
+			//Locales toString used a underscore but the language tag requires a dash
+			locale = canonical(Locale.forLanguageTag(tag.replace('_', '-')));
+			tags.put(tag, locale);
+		}
+		return locale;
+	}
+
+	/** Regional fallbacks for a locale, from most to least specific. For de_AT this is
+	 * de_AT, de. The server default is not part of the chain, as it's queried separately.
+	 * @return the fallback chain for this locale id, or an empty array for {@link #NONE} */
+	public static Locale[] fallbackChain(int id) {
+		Locale[][] cache = chains;
+		if (id >= 0 && id < cache.length && cache[id] != null) return cache[id];
+		Locale locale = get(id);
+		if (locale == null) return new Locale[0];
+		List<Locale> chain = new LinkedList<>();
+		chain.add(locale);
+		if (!locale.getVariant().isEmpty() || !locale.getScript().isEmpty())
+			chain.add(new Locale(locale.getLanguage(), locale.getCountry()));
+		if (!locale.getCountry().isEmpty())
+			chain.add(new Locale(locale.getLanguage()));
+		Locale[] result = chain.stream().map(LocaleRegistry::canonical).distinct().toArray(Locale[]::new);
+		synchronized (LocaleRegistry.class) {
+			cache = chains;
+			if (id >= cache.length) cache = Arrays.copyOf(cache, Math.max(size, id+1));
+			cache[id] = result;
+			chains = cache;
+		}
+		return result;
+	}
+
+	/** @return the amount of ids assigned so far, all ids are smaller than this */
+	public static int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,124 @@
+package de.dosmike.sponge.langswitch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/** Counts joins and play time per locale across restarts, so the most used
+ * locales can be loaded in the background right after the server started,
+ * instead of on the first join.<br>
+ * The file contains one line per locale in the format <code>language-tag=joins:seconds</code> */
+class LocaleStatistics {
+
+	private static final class Usage {
+		final AtomicLong joins = new AtomicLong();
+		final AtomicLong seconds = new AtomicLong();
+	}
+	private static final class Session {
+		final Locale locale;
+		final long since = System.currentTimeMillis();
+		Session(Locale locale) {
+			this.locale = locale;
+		}
+	}
+
+	private final Path file;
+	private final Map<Locale, Usage> usage = new ConcurrentHashMap<>();
+	private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+	private volatile boolean dirty = false;
+
+	LocaleStatistics(Path file) {
+		this.file = file;
+		load();
+	}
+
+	private void load() {
+		if (!Files.exists(file)) return;
+		try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line=br.readLine())!=null) {
+				int split = line.indexOf('=');
+				int split2 = line.indexOf(':', split);
+				if (split <= 0 || split2 < 0) continue;
+				try {
+					Usage u = usage(LocaleRegistry.forTag(line.substring(0, split)));
+					u.joins.set(Long.parseLong(line.substring(split+1, split2)));
+					u.seconds.set(Long.parseLong(line.substring(split2+1)));
+				} catch (NumberFormatException e) {
+					/* skip broken lines */
+				}
+			}
+		} catch (IOException e) {
+			LangSwitch.w("Could not read locale statistics from %s", file.toString());
+		}
+	}
+	private Usage usage(Locale locale) {
+		return usage.computeIfAbsent(locale, l->new Usage());
+	}
+
+	/** a player joined or switched to a different locale */
+	void startSession(UUID player, Locale locale, boolean joined) {
+		endSession(player);
+		if (locale == null) return;
+		if (joined) usage(locale).joins.incrementAndGet();
+		sessions.put(player, new Session(locale));
+		dirty = true;
+	}
+	/** a player left or is about to switch locales */
+	void endSession(UUID player) {
+		Session session = sessions.remove(player);
+		if (session == null) return;
+		long seconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - session.since);
+		usage(session.locale).seconds.addAndGet(seconds);
+		dirty = true;
+	}
+
+	/** Score locales by play time, using joins as tie breaker. Play time of currently
+	 * online players is not included until they leave.
+	 * @return up to limit locales, most used first */
+	List<Locale> getMostUsed(int limit) {
+		return usage.entrySet().stream()
+				.sorted(Comparator.<Map.Entry<Locale, Usage>>comparingLong(e->e.getValue().seconds.get())
+						.thenComparingLong(e->e.getValue().joins.get())
+						.reversed())
+				.limit(Math.max(0, limit))
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toList());
+	}
+
+	synchronized void flush() {
+		if (!dirty) return;
+		dirty = false;
+		try {
+			Files.createDirectories(file.getParent());
+			Path temp = file.resolveSibling(file.getFileName().toString()+".tmp");
+			try (BufferedWriter bw = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				for (Map.Entry<Locale, Usage> entry : usage.entrySet()) {
+					bw.write(entry.getKey().toLanguageTag()+"="+entry.getValue().joins.get()+":"+entry.getValue().seconds.get());
+					bw.newLine();
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty = true;
+			LangSwitch.w("Could not write locale statistics to %s", file.toString());
+		}
+	}
+
+	/** ends all sessions, so the play time is stored before the server stops */
+	void close() {
+		for (UUID player : new ArrayList<>(sessions.keySet()))
+			endSession(player);
+		flush();
+	}
+
+}
@@ -1,57 +1,56 @@
 package de.dosmike.sponge.langswitch;
 
 import de.dosmike.sponge.languageservice.API.Localized;
-import org.apache.commons.lang3.StringUtils;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.profile.GameProfile;
+import org.spongepowered.api.text.Text;
 import org.spongepowered.api.text.serializer.TextSerializers;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.Map.Entry;
 
 public class LocalizedString implements Localized<String> {
     private Lang lang;
     private String path;
+    private int slot = KeyIndex.NONE;
+    private TranslationHandleImpl handle = null;
 
     private Map<String, Object> replacements = new HashMap<>();
 	/** Calls toString on replacements when resolving
 	 * returns the same Localized for easy chaining. */
     @Override
     public LocalizedString replace(String charSequence, Object replacement) {
-		replacements.put(charSequence, replacement);
+		replacements.put(charSequence, LazyReplacement.wrap(replacement));
 		return this;
 	}
 	
 	private String getLocal(String string, Locale locale) {
 		if (lang==null) return path;
+		StringBuilder buffer = ScratchBuffers.acquire();
+		try {
+			render(buffer, string, locale);
+			return buffer.toString();
+		} finally {
+			ScratchBuffers.release(buffer);
+		}
+	}
+	/** strips formatting codes from the template and inserts the replacements */
+	private void render(StringBuilder buffer, String template, Locale locale) {
 		//String replace = TextSerializers.LEGACY_FORMATTING_CODE.stripCodes(string);
-		String replace = TextSerializers.formattingCode('\u00a7').stripCodes(string);
-		Set<String> unusedPlaceholders = new HashSet<>();
-		unusedPlaceholders.addAll(replacements.keySet()); //for translators
-		boolean round=true;
-		
-		while(round) {
-			round=false;
-			for (Entry<String, Object> e : replacements.entrySet()) {
-				if (replace.contains(e.getKey())) { round=true;
-					unusedPlaceholders.remove(e.getKey());
-					String value;
-					if (e.getValue() instanceof Localized) {
-						Object tempValue = ((Localized) e.getValue()).orLiteral(locale);
-						value = tempValue.toString();
-					} else {
-						value = e.getValue().toString();
-					}
-					replace = replace.replace(e.getKey(), value);
-					break;
-				}
-			}
+		if (template.indexOf('\u00a7')>=0) template = TextSerializers.formattingCode('\u00a7').stripCodes(template);
+		Map<String, Object> replacements = LazyReplacement.scope(this.replacements, locale);
+		PlaceholderMatcher matcher = PlaceholderMatcher.of(replacements.keySet());
+		BitSet used = LangSwitch.verbose ? ScratchBuffers.acquireBits() : null; //for translators
+		StringBuilder formatted = ScratchBuffers.acquire();
+		try {
+			CharSequence source = Directives.apply(formatted, template, replacements, locale, matcher, used) ? formatted : template;
+			Placeholders.render(buffer, source, matcher, replacements, locale, true, used);
+			if (used != null) Placeholders.logUnused(path, matcher, used);
+		} finally {
+			ScratchBuffers.release(formatted);
+			if (used != null) ScratchBuffers.release(used);
 		}
-		if (!unusedPlaceholders.isEmpty() && LangSwitch.verbose)
-			LangSwitch.l("Localisation %s does not use the following placeholder: %s", path, StringUtils.join(unusedPlaceholders, ", "));
-		
-		return replace;
 	}
 	LocalizedString(String path) {
 		lang=null;
@@ -61,11 +60,28 @@ public class LocalizedString implements Localized<String> {
 		lang=yourLang;
 		this.path=path;
 	}
+	/** @param slot the {@link KeyIndex} slot of path, if known */
+	LocalizedString(Lang yourLang, String path, int slot) {
+		this(yourLang, path);
+		this.slot=slot;
+	}
+	LocalizedString(Lang yourLang, TranslationHandleImpl handle) {
+		this(yourLang, handle.getPath());
+		this.handle=handle;
+	}
+	private Optional<String> query(Locale locale, Locale fallback, boolean silent) {
+		return Optional.ofNullable(template(locale, fallback, silent));
+	}
+	/** @return the raw translation or null */
+	private String template(Locale locale, Locale fallback, boolean silent) {
+		if (handle!=null && fallback==lang.def) return handle.resolve(locale);
+		return lang.query(path, slot, LocaleRegistry.id(locale), LocaleRegistry.id(fallback), silent);
+	}
     @Override
     public Optional<String> resolve(CommandSource src) {
 		if (lang==null)return Optional.empty();
 		if (src instanceof Player) return resolve((Player)src);
-		Optional<String> optional = lang.query(path, lang.def, null);
+		Optional<String> optional = query(lang.def, null, false);
         return optional.map(s->getLocal(s,lang.def));
     }
     @Override
@@ -79,12 +95,12 @@ public class LocalizedString implements Localized<String> {
     @Override
     public Optional<String> resolve(UUID playerID) {
 		if (lang==null)return Optional.empty();
-		Locale loc = LangSwitch.playerLang.get(playerID);
+		Locale loc = LangSwitch.getPlayerLocale(playerID);
 		return resolve(loc);
 	}
     @Override
     public Optional<String> resolve(Locale language) {
-		Optional<String> optional = lang.query(path, language, lang.def);
+		Optional<String> optional = query(language, lang.def, false);
         return optional.map(s->getLocal(s,language));
     }
 
@@ -92,7 +108,7 @@ public class LocalizedString implements Localized<String> {
     public String orLiteral(CommandSource src) {
         if (lang==null) return getLocal(path, null);
         if (src instanceof Player) return orLiteral((Player)src);
-        String template = lang.query(path, lang.def, null, true).orElse(path);
+        String template = query(lang.def, null, true).orElse(path);
         return getLocal(template, lang.def);
     }
     @Override
@@ -106,15 +122,38 @@ public class LocalizedString implements Localized<String> {
     @Override
     public String orLiteral(UUID playerID) {
         if (lang==null) return getLocal(path, null);
-        return orLiteral(LangSwitch.playerLang.get(playerID));
+        return orLiteral(LangSwitch.getPlayerLocale(playerID));
     }
     @Override
     public String orLiteral(Locale locale) {
 		if (lang==null) return getLocal(path, null);
-        String template = lang.query(path, locale, lang.def, true).orElse(path);
+        String template = query(locale, lang.def, true).orElse(path);
         return getLocal(template, locale);
     }
 
+    @Override
+    public boolean resolveInto(Appendable out, Locale locale) throws IOException {
+		if (lang==null) return false;
+		String template = template(locale, lang.def, false);
+		if (template==null) return false;
+		StringBuilder buffer = ScratchBuffers.acquire();
+		try {
+			render(buffer, template, locale);
+			out.append(buffer);
+		} finally {
+			ScratchBuffers.release(buffer);
+		}
+		return true;
+	}
+    @Override
+    public boolean resolveInto(Text.Builder out, Locale locale) {
+		if (lang==null) return false;
+		String template = template(locale, lang.def, false);
+		if (template==null) return false;
+		out.append(Text.of(getLocal(template, locale)));
+		return true;
+	}
+
     /** tries to get the default translation or returns the path if not found */
 	@Override
 	public String toString() {
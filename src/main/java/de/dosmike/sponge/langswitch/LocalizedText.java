@@ -2,7 +2,6 @@ package de.dosmike.sponge.langswitch;
 
 import de.dosmike.sponge.languageservice.API.Localized;
 import de.dosmike.sponge.spannable.Spannable;
-import org.apache.commons.lang3.StringUtils;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.profile.GameProfile;
@@ -12,12 +11,14 @@ import org.spongepowered.api.text.format.TextColors;
 import org.spongepowered.api.text.format.TextStyle;
 import org.spongepowered.api.text.format.TextStyles;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.Map.Entry;
 
 public class LocalizedText implements Localized<Text> {
     private Lang lang;
 	private String path;
+	private int slot = KeyIndex.NONE;
+	private TranslationHandleImpl handle = null;
 	private TextColor contextColor = TextColors.RESET;
 	private TextStyle contextStyle = TextStyles.RESET;
 
@@ -26,7 +27,7 @@ public class LocalizedText implements Localized<Text> {
 	 * returns the same Localized for easy chaining. */
     @Override
     public LocalizedText replace(String charSequence, Object replacement) {
-		replacements.put(charSequence, replacement);
+		replacements.put(charSequence, LazyReplacement.wrap(replacement));
 		return this;
 	}
 
@@ -37,26 +38,46 @@ public class LocalizedText implements Localized<Text> {
 	private Text getLocal(String string, Locale locale) {
 //		Spannable raw = Spannable.from(TextSerializers.formattingCode('\u00a7').deserialize(string));
 //		Spannable raw = Spannable.from(string);
+		Map<String, Object> replacements = LazyReplacement.scope(this.replacements, locale);
+		PlaceholderMatcher matcher = PlaceholderMatcher.of(replacements.keySet());
+		BitSet used = LangSwitch.verbose ? ScratchBuffers.acquireBits() : null;
+		try {
+			return getLocal(string, locale, replacements, matcher, used);
+		} finally {
+			if (used != null) ScratchBuffers.release(used);
+		}
+	}
+	private Text getLocal(String string, Locale locale, Map<String, Object> replacements, PlaceholderMatcher matcher, BitSet used) {
+		StringBuilder formatted = ScratchBuffers.acquire();
+		try {
+			if (Directives.apply(formatted, string, replacements, locale, matcher, used)) string = formatted.toString();
+		} finally {
+			ScratchBuffers.release(formatted);
+		}
 		Spannable raw = Spannable.parseSerialized(string, '\u00a7');
-		Set<String> unusedPlaceholders = new HashSet<>(replacements.keySet());
-		for (Entry<String, Object> entry : replacements.entrySet()) {
-			Text replacement;
-			if (raw.toString().contains(entry.getKey())) {
-				unusedPlaceholders.remove(entry.getKey()); //placeholder is used
-
-				if (entry.getValue() instanceof Localized) {
-					Object loc = ((Localized) entry.getValue()).orLiteral(locale);
+		long[] matches = Placeholders.findAll(matcher, raw.toString());
+		Spannable[] values = new Spannable[matcher.size()];
+		//splice from the back, so earlier offsets stay valid
+		for (int i = matches.length-1; i >= 0; i--) {
+			int start = (int)(matches[i] >>> 32), index = (int)matches[i];
+			String key = matcher.key(index);
+			if (values[index] == null) {
+				if (used != null) used.set(index); //placeholder is used
+				Object value = replacements.get(key);
+				Text replacement;
+				if (value instanceof Localized) {
+					Object loc = ((Localized) value).orLiteral(locale);
 					replacement = (loc instanceof Text) ? (Text)loc : Text.of(loc);
-				} else if (entry.getValue() instanceof Text) {
-					replacement = (Text) entry.getValue();
+				} else if (value instanceof Text) {
+					replacement = (Text) value;
 				} else {
-					replacement = Text.of(entry.getValue());
+					replacement = Text.of(value);
 				}
-				raw = raw.replace(entry.getKey(), replacement);
+				values[index] = Spannable.from(replacement);
 			}
+			raw = raw.splice(start, key.length(), values[index]);
 		}
-		if (!unusedPlaceholders.isEmpty() && LangSwitch.verbose)
-			LangSwitch.l("Localisation %s does not use the following placeholder: %s", path, StringUtils.join(unusedPlaceholders, ", "));
+		if (used != null) Placeholders.logUnused(path, matcher, used);
 		return raw.toText(contextColor,contextStyle);
 	}
 	
@@ -68,11 +89,28 @@ public class LocalizedText implements Localized<Text> {
 		lang=yourLang;
 		this.path=path;
 	}
+	/** @param slot the {@link KeyIndex} slot of path, if known */
+	LocalizedText(Lang yourLang, String path, int slot) {
+		this(yourLang, path);
+		this.slot=slot;
+	}
+	LocalizedText(Lang yourLang, TranslationHandleImpl handle) {
+		this(yourLang, handle.getPath());
+		this.handle=handle;
+	}
+	private Optional<String> query(Locale locale, Locale fallback, boolean silent) {
+		return Optional.ofNullable(template(locale, fallback, silent));
+	}
+	/** @return the raw translation or null */
+	private String template(Locale locale, Locale fallback, boolean silent) {
+		if (handle!=null && fallback==lang.def) return handle.resolve(locale);
+		return lang.query(path, slot, LocaleRegistry.id(locale), LocaleRegistry.id(fallback), silent);
+	}
 	@Override
     public Optional<Text> resolve(CommandSource src) {
 		if (lang==null)return Optional.empty();
 		if (src instanceof Player) return resolve((Player)src);
-		Optional<String> optional = lang.query(path, lang.def, null);
+		Optional<String> optional = query(lang.def, null, false);
         return optional.map(s->getLocal(s,lang.def));
     }
     @Override
@@ -86,12 +124,12 @@ public class LocalizedText implements Localized<Text> {
     @Override
     public Optional<Text> resolve(UUID playerID) {
 		if (lang==null)return Optional.empty();
-		Locale loc = LangSwitch.playerLang.get(playerID);
+		Locale loc = LangSwitch.getPlayerLocale(playerID);
 		return resolve(loc);
 	}
     @Override
     public Optional<Text> resolve(Locale language) {
-		Optional<String> optional = lang.query(path, language, lang.def);
+		Optional<String> optional = query(language, lang.def, false);
         return optional.map(s->getLocal(s,language));
     }
 
@@ -99,7 +137,7 @@ public class LocalizedText implements Localized<Text> {
     public Text orLiteral(CommandSource src) {
         if (lang==null) return getLocal(path, null);
         if (src instanceof Player) return orLiteral((Player)src);
-        String template = lang.query(path, lang.def, null, true).orElse(path);
+        String template = query(lang.def, null, true).orElse(path);
         return getLocal(template, lang.def);
     }
     @Override
@@ -113,12 +151,12 @@ public class LocalizedText implements Localized<Text> {
     @Override
     public Text orLiteral(UUID playerID) {
         if (lang==null) return getLocal(path, null);
-        return orLiteral(LangSwitch.playerLang.get(playerID));
+        return orLiteral(LangSwitch.getPlayerLocale(playerID));
     }
     @Override
     public Text orLiteral(Locale locale) {
 		if (lang==null) return getLocal(path, null);
-        return getLocal(lang.query(path, locale, lang.def, true).orElse(path), locale);
+        return getLocal(query(locale, lang.def, true).orElse(path), locale);
     }
 
     /**
@@ -136,6 +174,63 @@ public class LocalizedText implements Localized<Text> {
 		this.contextColor = contextColor;
 		return this;
 	}
+	@Override
+	public boolean resolveInto(Appendable out, Locale locale) throws IOException {
+		if (lang==null) return false;
+		String template = template(locale, lang.def, false);
+		if (template==null) return false;
+		if (!isPlain(template)) {
+			out.append(getLocal(template, locale).toPlain());
+			return true;
+		}
+		StringBuilder buffer = ScratchBuffers.acquire();
+		try {
+			renderPlain(buffer, template, locale);
+			out.append(buffer);
+		} finally {
+			ScratchBuffers.release(buffer);
+		}
+		return true;
+	}
+	@Override
+	public boolean resolveInto(Text.Builder out, Locale locale) {
+		if (lang==null) return false;
+		String template = template(locale, lang.def, false);
+		if (template==null) return false;
+		if (!isPlain(template)) {
+			out.append(getLocal(template, locale));
+			return true;
+		}
+		//without any formatting there are no spans, so skip building a Spannable
+		StringBuilder buffer = ScratchBuffers.acquire();
+		try {
+			renderPlain(buffer, template, locale);
+			out.append(Text.builder(buffer.toString()).color(contextColor).style(contextStyle).build());
+		} finally {
+			ScratchBuffers.release(buffer);
+		}
+		return true;
+	}
+	/** @return true if neither the template nor any replacement has formatting */
+	private boolean isPlain(String template) {
+		return template.indexOf('\u00a7')<0 && Placeholders.isPlain(replacements);
+	}
+	/** same as {@link #getLocal(String, Locale)} for templates that passed {@link #isPlain(String)} */
+	private void renderPlain(StringBuilder buffer, String template, Locale locale) {
+		Map<String, Object> replacements = LazyReplacement.scope(this.replacements, locale);
+		PlaceholderMatcher matcher = PlaceholderMatcher.of(replacements.keySet());
+		BitSet used = LangSwitch.verbose ? ScratchBuffers.acquireBits() : null;
+		StringBuilder formatted = ScratchBuffers.acquire();
+		try {
+			CharSequence source = Directives.apply(formatted, template, replacements, locale, matcher, used) ? formatted : template;
+			Placeholders.render(buffer, source, matcher, replacements, locale, false, used);
+			if (used != null) Placeholders.logUnused(path, matcher, used);
+		} finally {
+			ScratchBuffers.release(formatted);
+			if (used != null) ScratchBuffers.release(used);
+		}
+	}
+
 	/**
 	 * Text actually sucks hard and TextColor.NONE / TextStyle.NONE
 	 * do not END styles / colors but actually literally do not contain
@@ -185,6 +280,23 @@ public class LocalizedText implements Localized<Text> {
 		return this;
 	}
 
+	Lang getLang() {
+		return lang;
+	}
+	String getPath() {
+		return path;
+	}
+	TextColor getContextColor() {
+		return contextColor;
+	}
+	TextStyle getContextStyle() {
+		return contextStyle;
+	}
+	/** @return the replacements, must not be modified */
+	Map<String, Object> getReplacements() {
+		return replacements;
+	}
+
     /** tries to get the default translation or returns the path if not found */
 	@Override
 	public String toString() {
@@ -0,0 +1,39 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@link LangTable} holding all translations in a hash map */
+class MapLangTable extends LangTable {
+
+	private final Map<String, String> values;
+
+	MapLangTable(Map<String, String> values) {
+		this.values = new HashMap<>(values.size() * 4 / 3 + 1);
+		long bytes = 64 + 8L * values.size() * 4 / 3; //map and bucket array at default load factor
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			String key = pool(entry.getKey());
+			String value = pool(entry.getValue());
+			this.values.put(key, value);
+			bytes += 32 + MemoryBudget.estimate(key) + MemoryBudget.estimate(value);
+		}
+		estimatedBytes = bytes;
+	}
+
+	@Override
+	String get(String path) {
+		touch();
+		return values.get(path);
+	}
+
+	@Override
+	int size() {
+		return values.size();
+	}
+
+	@Override
+	Map<String, String> asMap() {
+		return new HashMap<>(values);
+	}
+
+}
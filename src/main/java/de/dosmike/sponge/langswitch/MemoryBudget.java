@@ -0,0 +1,139 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/** Keeps the memory used by loaded translations below a configured limit,
+ * by unloading the tables that were not used for the longest time.
+ * Namespaces are also unloaded once they were idle for a while.<br>
+ * Main tables of the server default locale and of locales used by online players are never evicted. Evicted tables will
+ * be loaded again in the background on the next lookup. */
+class MemoryBudget {
+
+	/** coarse clock in seconds, advanced by {@link #tick()} so lookups don't have to read the system time */
+	static volatile long clock = 0;
+
+	/** namespaces not used for this many seconds are unloaded regardless of the limit */
+	private static final long NAMESPACE_IDLE = 600;
+
+	/** limit in bytes, 0 for no limit */
+	private volatile long limit;
+	private volatile long resident = 0;
+	private volatile long pooled = 0;
+	private volatile long evictions = 0;
+
+	MemoryBudget(long limit) {
+		this.limit = limit;
+	}
+
+	void setLimit(long limit) {
+		this.limit = limit;
+	}
+
+	/** @return approximate retained size of a string, assuming 2 bytes per char */
+	static long estimate(String s) {
+		return s == null ? 0 : 40 + 2L * s.length();
+	}
+
+	private static final class Candidate {
+		final LangTable table;
+		/** unloads the table, returns false if it was replaced in the meantime */
+		final BooleanSupplier evict;
+		final String description;
+		Candidate(LangTable table, BooleanSupplier evict, String description) {
+			this.table = table;
+			this.evict = evict;
+			this.description = description;
+		}
+	}
+
+	/** advance the clock and enforce the budget, called once per second */
+	void tick() {
+		clock++;
+		enforce();
+	}
+
+	/** evict idle namespaces and the least recently used tables until the total size is within the limit */
+	synchronized void enforce() {
+		int defaultId = LocaleRegistry.id(LangSwitch.getServerDefault());
+		BitSet inUse = LangSwitch.localesInUse();
+		long total = 0, saved = 0;
+		List<Candidate> candidates = new ArrayList<>();
+		for (Lang translation : LangSwitch.plugins.values()) {
+			LangTable[] tables = translation.getTables();
+			for (int i = 0; i < tables.length; i++) {
+				LangTable table = tables[i];
+				if (table == null) continue;
+				total += table.getEstimatedBytes();
+				saved += table.getPooledBytes();
+				String description = translation.pluginID+" in "+LocaleRegistry.get(i);
+				if (i != defaultId && i != LocaleRegistry.id(translation.def) && !inUse.get(i)) {
+					int locale = i;
+					candidates.add(new Candidate(table, ()->{
+						//tables are published under this lock, so a load can't slip in between
+						synchronized (translation) {
+							//don't drop a table that was just replaced by a reload
+							if (translation.getTable(locale) != table) return false;
+							translation.removeTranslation(locale);
+							translation.markUnloaded(locale);
+						}
+						return true;
+					}, description));
+				}
+				Namespaces namespaces = table.namespaces;
+				if (namespaces == null) continue;
+				for (int n = 0; n < namespaces.size(); n++) {
+					LangTable part = namespaces.peek(n);
+					if (part == null) continue;
+					int index = n;
+					Candidate candidate = new Candidate(part, ()->namespaces.evict(index, part),
+							"namespace "+namespaces.getName(n)+" for "+description);
+					if (clock - part.getLastAccess() > NAMESPACE_IDLE) {
+						evict(candidate, "because it was not used recently");
+					} else {
+						total += part.getEstimatedBytes();
+						saved += part.getPooledBytes();
+						candidates.add(candidate);
+					}
+				}
+			}
+		}
+		long limit = this.limit;
+		if (limit > 0 && total > limit) {
+			candidates.sort(Comparator.comparingLong(c->c.table.getLastAccess()));
+			for (Candidate candidate : candidates) {
+				if (total <= limit) break;
+				if (!evict(candidate, "to stay within the memory budget")) continue;
+				total -= candidate.table.getEstimatedBytes();
+				saved -= candidate.table.getPooledBytes();
+			}
+		}
+		resident = total;
+		pooled = saved;
+	}
+	private boolean evict(Candidate candidate, String reason) {
+		if (!candidate.evict.getAsBoolean()) return false;
+		evictions++;
+		if (LangSwitch.verbose) LangSwitch.l("Evicted translations for %s %s", candidate.description, reason);
+		return true;
+	}
+
+	/** @return the approximate size of all loaded tables at the last check */
+	long getResident() {
+		return resident;
+	}
+	/** @return the approximate memory saved by the {@link StringPool} at the last check */
+	long getPooled() {
+		return pooled;
+	}
+	long getLimit() {
+		return limit;
+	}
+	long getEvictions() {
+		return evictions;
+	}
+
+}
@@ -0,0 +1,50 @@
+package de.dosmike.sponge.langswitch;
+
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.text.Text;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/** Collects messages sent through the LanguageService and sends all messages for the
+ * same receiver as one Text, joined with new lines, when flushed at the start of the
+ * next tick.<br>
+ * Players are queued by UUID and looked up again when flushing, so messages reach the
+ * current player instance after a reconnect and are dropped if the player left. */
+class MessageQueue {
+
+	/** UUIDs for players, the CommandSource for everything else */
+	private Map<Object, List<Text>> pending = new LinkedHashMap<>();
+	/** checked every tick without locking */
+	private volatile boolean empty = true;
+
+	synchronized void add(CommandSource receiver, Text message) {
+		Object key = receiver instanceof Player ? ((Player) receiver).getUniqueId() : receiver;
+		pending.computeIfAbsent(key, r->new ArrayList<>(4)).add(message);
+		empty = false;
+	}
+
+	/** sends everything queued so far, has to run on the main thread */
+	void flush() {
+		if (empty) return;
+		Map<Object, List<Text>> messages;
+		synchronized (this) {
+			messages = pending;
+			pending = new LinkedHashMap<>();
+			empty = true;
+		}
+		for (Map.Entry<Object, List<Text>> entry : messages.entrySet()) {
+			List<Text> lines = entry.getValue();
+			Text message = lines.size() == 1 ? lines.get(0) : Text.joinWith(Text.NEW_LINE, lines);
+			Object key = entry.getKey();
+			if (key instanceof UUID) Sponge.getServer().getPlayer((UUID) key).ifPresent(player->player.sendMessage(message));
+			else ((CommandSource) key).sendMessage(message);
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package de.dosmike.sponge.langswitch;
+
+import org.spongepowered.api.Sponge;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** Translations that were split into one file per top-level key, like
+ * <code>Lang/en_US/help.lang</code> for all keys starting with <code>help.</code><br>
+ * Keys in these files are written without the namespace prefix. A namespace is
+ * only read after the first lookup of a key inside it, by the {@link LoadScheduler}
+ * so lookups never wait for the file. Until then lookups are served by the main
+ * table and the default locale, a {@link de.dosmike.sponge.languageservice.API.TranslationsReloadedEvent}
+ * is posted once it was read. Namespaces may be evicted independently from the
+ * rest of the locale once they are idle. */
+class Namespaces {
+
+	/** seconds before a namespace that failed to read is tried again */
+	private static final long RETRY_DELAY = 60;
+
+	private final String pluginID;
+	private final Lang owner;
+	private final int locale;
+	/** fallback chain of the locale these namespaces belong to */
+	private final Locale[] chain;
+	private final String[] names;
+	private final AtomicReferenceArray<LangTable> tables;
+	/** 1 for namespaces that were queued for reading and not evicted since */
+	private final AtomicIntegerArray requested;
+	/** {@link MemoryBudget#clock} after which a namespace that failed to read is tried again */
+	private final AtomicLongArray retryAt;
+
+	Namespaces(String pluginID, Lang owner, int locale, Locale[] chain, String[] names) {
+		this.pluginID = pluginID;
+		this.owner = owner;
+		this.locale = locale;
+		this.chain = chain;
+		this.names = names;
+		tables = new AtomicReferenceArray<>(names.length);
+		requested = new AtomicIntegerArray(names.length);
+		retryAt = new AtomicLongArray(names.length);
+	}
+
+	/** @return the index of the namespace containing this path, or -1 */
+	int find(String path) {
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			if (path.length() > name.length() && path.charAt(name.length()) == '.' && path.startsWith(name))
+				return i;
+		}
+		return -1;
+	}
+
+	/** @return the table for this namespace, or null if it's not loaded yet. In that case
+	 * it is queued for reading in the background */
+	LangTable get(int index) {
+		LangTable table = tables.get(index);
+		if (table == null) request(index);
+		return table;
+	}
+	/** queues the namespace for reading, unless it's queued already or failed recently */
+	private void request(int index) {
+		if (MemoryBudget.clock < retryAt.get(index) || !requested.compareAndSet(index, 0, 1)) return;
+		LangSwitch.loader.submit(pluginID, chain[0], names[index], ()->{
+			if (load(index))
+				Sponge.getEventManager().post(new TranslationsReloadedEventImpl(LangSwitch.cause(), pluginID, owner, Collections.singleton(chain[0])));
+		}, LoadScheduler.Priority.ONLINE).exceptionally(e->{
+			LangSwitch.w("Could not load namespace %s for %s in %s: %s", names[index], pluginID, chain[0].toString(), e.getMessage());
+			retryAt.set(index, MemoryBudget.clock + RETRY_DELAY);
+			requested.set(index, 0);
+			return null;
+		});
+	}
+	/** @return true if the namespace was read, false if it was loaded already */
+	private synchronized boolean load(int index) {
+		if (tables.get(index) != null) return false;
+		if (LangSwitch.verbose) LangSwitch.l("Loading namespace %s for %s in %s...", names[index], pluginID, chain[0].toString());
+		Map<String, String> values = LangSwitch.readNamespace(pluginID, chain, names[index]);
+		owner.keys.register(values.keySet());
+		tables.set(index, new MapLangTable(values));
+		//lookups may have cached the main table or default value in the meantime
+		owner.invalidate(locale);
+		return true;
+	}
+
+	/** queues all namespaces that may contain paths starting with this prefix for reading */
+	void requestOverlapping(String prefix) {
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			if (!name.startsWith(prefix) && !(prefix.length() > name.length() && prefix.charAt(name.length()) == '.' && prefix.startsWith(name)))
+				continue;
+			if (tables.get(i) == null) request(i);
+		}
+	}
+
+	/** @return the table for this namespace if loaded, null otherwise */
+	LangTable peek(int index) {
+		return tables.get(index);
+	}
+
+	/** unloads the namespace, unless the table was replaced in the meantime */
+	boolean evict(int index, LangTable table) {
+		if (!tables.compareAndSet(index, table, null)) return false;
+		requested.set(index, 0);
+		return true;
+	}
+
+	String getName(int index) {
+		return names[index];
+	}
+
+	int size() {
+		return names.length;
+	}
+
+}
@@ -0,0 +1,89 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@link LangTable} for partial translations. Stores a bit for every {@link KeyIndex}
+ * slot that is translated and only the translated values, packed in slot order.
+ * Untranslated slots resolve to the dense base table of the default locale. */
+class OverlayLangTable extends LangTable {
+
+	private final KeyIndex keys;
+	private final DenseLangTable base;
+	/** one bit per slot, set if this locale has a value */
+	private final long[] present;
+	/** amount of set bits in all words before each word */
+	private final int[] ranks;
+	private final String[] packed;
+
+	OverlayLangTable(KeyIndex keys, DenseLangTable base, Map<String, String> values) {
+		this.keys = keys;
+		this.base = base;
+		keys.register(values.keySet());
+		int slots = keys.size();
+		present = new long[(slots+63) >>> 6];
+		for (String key : values.keySet()) {
+			int slot = keys.slot(key);
+			present[slot >>> 6] |= 1L << slot;
+		}
+		ranks = new int[present.length];
+		int rank = 0;
+		for (int i = 0; i < present.length; i++) {
+			ranks[i] = rank;
+			rank += Long.bitCount(present[i]);
+		}
+		packed = new String[rank];
+		for (Map.Entry<String, String> entry : values.entrySet())
+			packed[rank(keys.slot(entry.getKey()))] = pool(entry.getValue());
+		long bytes = 48 + 8L * present.length + 4L * ranks.length + 8L * packed.length;
+		for (String value : packed) bytes += MemoryBudget.estimate(value);
+		estimatedBytes = bytes;
+	}
+
+	private int rank(int slot) {
+		int word = slot >>> 6;
+		return ranks[word] + Long.bitCount(present[word] & ((1L << slot) - 1));
+	}
+	private boolean isPresent(int slot) {
+		int word = slot >>> 6;
+		return slot >= 0 && word < present.length && (present[word] & (1L << slot)) != 0;
+	}
+
+	/** @return the dense table of the default locale this overlay was built on, if any */
+	DenseLangTable getBase() {
+		return base;
+	}
+
+	@Override
+	String get(String path) {
+		return get(KeyIndex.NONE, path);
+	}
+	@Override
+	String get(int slot, String path) {
+		if (slot < 0) slot = keys.slot(path);
+		touch();
+		return isPresent(slot) ? packed[rank(slot)] : null;
+	}
+	/** Single branch lookup through the overlay into the base table
+	 * @param slot the slot of path or {@link KeyIndex#NONE} if not known
+	 * @return the value in this locale, the value in the default locale or null */
+	String getOrBase(int slot, String path) {
+		if (slot < 0) slot = keys.slot(path);
+		touch();
+		return isPresent(slot) ? packed[rank(slot)] : base.get(slot);
+	}
+
+	@Override
+	int size() {
+		return packed.length;
+	}
+
+	@Override
+	Map<String, String> asMap() {
+		Map<String, String> map = new HashMap<>();
+		for (int slot = 0; slot < present.length * 64; slot++)
+			if (isPresent(slot)) map.put(keys.key(slot), packed[rank(slot)]);
+		return map;
+	}
+
+}
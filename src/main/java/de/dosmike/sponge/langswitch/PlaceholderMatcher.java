@@ -0,0 +1,171 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Aho-Corasick automaton finding all placeholders of a Localized in one scan.<br>
+ * Matchers are cached by their set of placeholders, as most messages are resolved
+ * with the same placeholders over and over. Matches never overlap, if placeholders
+ * overlap the one starting first wins, and of those the longest, so <code>%player_name</code>
+ * is not replaced as <code>%player</code>. */
+final class PlaceholderMatcher {
+
+	/** cleared when full, the same few key sets are usually rebuilt quickly */
+	private static final int MAX_CACHED = 1024;
+	private static final Map<Set<String>, PlaceholderMatcher> cache = new ConcurrentHashMap<>();
+
+	/** @return the matcher for these placeholders, empty keys are ignored */
+	static PlaceholderMatcher of(Set<String> placeholders) {
+		PlaceholderMatcher matcher = cache.get(placeholders);
+		if (matcher != null) return matcher;
+		if (cache.size() >= MAX_CACHED) cache.clear();
+		Set<String> copy = Collections.unmodifiableSet(new HashSet<>(placeholders));
+		return cache.computeIfAbsent(copy, PlaceholderMatcher::new);
+	}
+
+	private final String[] keys;
+	private final Map<String, Integer> indices = new HashMap<>();
+	/** transitions of every state, sorted by char */
+	private final char[][] edgeChars;
+	private final int[][] edgeTargets;
+	private final int[] fail;
+	/** length of the prefix each state represents */
+	private final int[] depth;
+	/** index of the longest key ending in each state or -1 */
+	private final int[] output;
+
+	private PlaceholderMatcher(Set<String> placeholders) {
+		List<String> list = new ArrayList<>();
+		for (String key : placeholders) if (!key.isEmpty()) list.add(key);
+		keys = list.toArray(new String[0]);
+		for (int k = 0; k < keys.length; k++) indices.put(keys[k], k);
+
+		//build the trie with maps, then compact it into arrays
+		List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+		List<Integer> terminal = new ArrayList<>();
+		trie.add(new TreeMap<>());
+		terminal.add(-1);
+		for (int k = 0; k < keys.length; k++) {
+			int state = 0;
+			for (int i = 0; i < keys[k].length(); i++) {
+				Integer next = trie.get(state).get(keys[k].charAt(i));
+				if (next == null) {
+					next = trie.size();
+					trie.add(new TreeMap<>());
+					terminal.add(-1);
+					trie.get(state).put(keys[k].charAt(i), next);
+				}
+				state = next;
+			}
+			terminal.set(state, k);
+		}
+		int states = trie.size();
+		edgeChars = new char[states][];
+		edgeTargets = new int[states][];
+		for (int s = 0; s < states; s++) {
+			TreeMap<Character, Integer> edges = trie.get(s);
+			edgeChars[s] = new char[edges.size()];
+			edgeTargets[s] = new int[edges.size()];
+			int i = 0;
+			for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+				edgeChars[s][i] = edge.getKey();
+				edgeTargets[s][i++] = edge.getValue();
+			}
+		}
+
+		//breadth first, so the fail state of the parent is complete before its children
+		fail = new int[states];
+		depth = new int[states];
+		output = new int[states];
+		output[0] = -1;
+		int[] queue = new int[states];
+		int head = 0, tail = 0;
+		for (int child : edgeTargets[0]) {
+			fail[child] = 0;
+			depth[child] = 1;
+			output[child] = terminal.get(child);
+			queue[tail++] = child;
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			for (int i = 0; i < edgeChars[state].length; i++) {
+				char c = edgeChars[state][i];
+				int child = edgeTargets[state][i];
+				int f = fail[state];
+				int target;
+				while ((target = step(f, c)) < 0 && f != 0) f = fail[f];
+				fail[child] = target < 0 ? 0 : target;
+				depth[child] = depth[state]+1;
+				output[child] = terminal.get(child) >= 0 ? terminal.get(child) : output[fail[child]];
+				queue[tail++] = child;
+			}
+		}
+	}
+
+	private int step(int state, char c) {
+		char[] chars = edgeChars[state];
+		int lo = 0, hi = chars.length-1;
+		while (lo <= hi) {
+			int mid = (lo+hi) >>> 1;
+			if (chars[mid] < c) lo = mid+1;
+			else if (chars[mid] > c) hi = mid-1;
+			else return edgeTargets[state][mid];
+		}
+		return -1;
+	}
+
+	/** @return true if there are no placeholders to search for */
+	boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	String key(int index) {
+		return keys[index];
+	}
+
+	/** @return the index of this key, as used by {@link #key(int)}, or -1 */
+	int indexOf(String key) {
+		Integer index = indices.get(key);
+		return index == null ? -1 : index;
+	}
+
+	int size() {
+		return keys.length;
+	}
+
+	/** Finds the next placeholder in text, starting at from. After the first hit the scan continues
+	 * as long as a key starting at or before that hit may still end, to pick the leftmost longest match.
+	 * @return the end index (exclusive) of the match in the upper 32 bit and the key index in the lower 32 bit, or -1 */
+	long find(CharSequence text, int from) {
+		if (keys.length == 0) return -1;
+		int state = 0, best = -1, bestStart = 0, bestEnd = 0;
+		for (int i = from, length = text.length(); i < length; i++) {
+			char c = text.charAt(i);
+			int next;
+			while ((next = step(state, c)) < 0 && state != 0) state = fail[state];
+			state = next < 0 ? 0 : next;
+			//the state only covers the last depth chars, keys starting before that can't match anymore
+			if (best >= 0 && depth[state] < i+1-bestStart) break;
+			int key = output[state];
+			if (key < 0) continue;
+			//the longest key ending here is also the one starting first
+			int start = i+1-keys[key].length();
+			if (best < 0 || start <= bestStart) {
+				best = key;
+				bestStart = start;
+				bestEnd = i+1;
+			}
+		}
+		return best < 0 ? -1 : ((long)bestEnd << 32) | best;
+	}
+
+	/** @return the end index of a result from {@link #find(CharSequence, int)} */
+	static int end(long match) {
+		return (int)(match >>> 32);
+	}
+	/** @return the key index of a result from {@link #find(CharSequence, int)} */
+	static int keyIndex(long match) {
+		return (int) match;
+	}
+
+}
@@ -0,0 +1,105 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.Localized;
+import org.spongepowered.api.text.Text;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Inserts replacement values into a template held in a StringBuilder, without
+ * creating intermediate strings for every replacement. */
+final class Placeholders {
+
+	private Placeholders() {}
+
+	/** nested placeholders are expanded at most this many times, in case a value contains its own placeholder */
+	private static final int MAX_PASSES = 8;
+
+	/** Appends the template to target with all placeholders replaced. All placeholders are found in a single
+	 * scan with a {@link PlaceholderMatcher} and every value is only computed once.
+	 * @param repeat if set, replacement values may contain placeholders themselves and are expanded as well
+	 * @param matcher the matcher for the replacements
+	 * @param used if not null, the bits of placeholders found in the template are set */
+	static void render(StringBuilder target, CharSequence template, PlaceholderMatcher matcher, Map<String, Object> replacements, Locale locale, boolean repeat, BitSet used) {
+		if (matcher.isEmpty()) {
+			target.append(template);
+			return;
+		}
+		CharSequence[] values = ScratchBuffers.acquireValues(matcher.size());
+		try {
+			int start = target.length();
+			CharSequence source = template;
+			for (int pass = 1; ; pass++) {
+				boolean nested = false;
+				int from = 0;
+				long match;
+				while ((match = matcher.find(source, from)) >= 0) {
+					int end = PlaceholderMatcher.end(match), index = PlaceholderMatcher.keyIndex(match);
+					String key = matcher.key(index);
+					target.append(source, from, end-key.length());
+					if (values[index] == null) {
+						if (used != null) used.set(index);
+						values[index] = valueOf(replacements.get(key), locale);
+					}
+					if (repeat && matcher.find(values[index], 0) >= 0) nested = true;
+					target.append(values[index]);
+					from = end;
+				}
+				target.append(source, from, source.length());
+				if (!nested || pass >= MAX_PASSES) return;
+				source = target.substring(start);
+				target.setLength(start);
+			}
+		} finally {
+			ScratchBuffers.release(values);
+		}
+	}
+
+	/** logs the placeholders that were passed but not used by the translation, for translators */
+	static void logUnused(String path, PlaceholderMatcher matcher, BitSet used) {
+		if (used.cardinality() >= matcher.size()) return;
+		List<String> unused = new ArrayList<>();
+		for (int i = used.nextClearBit(0); i < matcher.size(); i = used.nextClearBit(i+1))
+			unused.add(matcher.key(i));
+		LangSwitch.l("Localisation %s does not use the following placeholder: %s", path, StringUtils.join(unused, ", "));
+	}
+
+	/** @return all placeholders in the text, as start index in the upper and key index in the lower 32 bit, in order */
+	static long[] findAll(PlaceholderMatcher matcher, CharSequence text) {
+		long[] matches = new long[4];
+		int count = 0, from = 0;
+		long match;
+		while ((match = matcher.find(text, from)) >= 0) {
+			int end = PlaceholderMatcher.end(match), index = PlaceholderMatcher.keyIndex(match);
+			if (count == matches.length) matches = Arrays.copyOf(matches, count*2);
+			matches[count++] = ((long)(end-matcher.key(index).length()) << 32) | index;
+			from = end;
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	/** Lazy values are not computed to check, so they always count as formatted.
+	 * @return true if no replacement value may carry formatting, so the template can be rendered as plain string */
+	static boolean isPlain(Map<String, Object> replacements) {
+		for (Object value : replacements.values())
+			if (value instanceof Text || value instanceof LazyReplacement || (value instanceof Localized && !(value instanceof LocalizedString))) return false;
+		return true;
+	}
+
+	private static CharSequence valueOf(Object value, Locale locale) {
+		value = LazyReplacement.unwrap(value, locale);
+		if (value instanceof Localized) {
+			Object resolved = ((Localized<?>) value).orLiteral(locale);
+			return resolved instanceof Text ? ((Text) resolved).toPlain() : resolved.toString();
+		}
+		if (value instanceof Text) return ((Text) value).toPlain();
+		return value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+	}
+
+}
@@ -0,0 +1,135 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+/** Maps player UUIDs to {@link LocaleRegistry} ids.<br>
+ * This is read on every message that is resolved for a player, so the table is
+ * kept in primitive arrays with open addressing (linear probing), keyed by the
+ * two long halves of the UUID. Reads are lock free and allocation free, writes
+ * are rare (join, leave, /language) and publish a fresh copy of the table. */
+class PlayerLocaleMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private static final class Table {
+		/** most and least significant bits for every slot, interleaved */
+		final long[] keys;
+		/** locale id for every slot, {@link LocaleRegistry#NONE} marks a free slot */
+		final int[] values;
+		final int mask;
+		int size = 0;
+
+		Table(int capacity) {
+			keys = new long[capacity*2];
+			values = new int[capacity];
+			Arrays.fill(values, LocaleRegistry.NONE);
+			mask = capacity-1;
+		}
+
+		int slot(long msb, long lsb) {
+			int i = hash(msb, lsb) & mask;
+			while (values[i] != LocaleRegistry.NONE) {
+				if (keys[i*2] == msb && keys[i*2+1] == lsb) return i;
+				i = (i+1) & mask;
+			}
+			return i;
+		}
+
+		void insert(long msb, long lsb, int value) {
+			int i = slot(msb, lsb);
+			if (values[i] == LocaleRegistry.NONE) size++;
+			keys[i*2] = msb;
+			keys[i*2+1] = lsb;
+			values[i] = value;
+		}
+	}
+
+	private volatile Table table = new Table(MIN_CAPACITY);
+
+	private static int hash(long msb, long lsb) {
+		long h = msb ^ lsb;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h;
+	}
+
+	/** @return the locale id for this player or {@link LocaleRegistry#NONE} */
+	int get(UUID player) {
+		return get(player.getMostSignificantBits(), player.getLeastSignificantBits());
+	}
+	int get(long msb, long lsb) {
+		Table t = table;
+		return t.values[t.slot(msb, lsb)];
+	}
+
+	/** @return the previous locale id for this player or {@link LocaleRegistry#NONE} */
+	synchronized int put(UUID player, int locale) {
+		if (locale < 0) return remove(player);
+		long msb = player.getMostSignificantBits(), lsb = player.getLeastSignificantBits();
+		Table current = table;
+		int previous = current.values[current.slot(msb, lsb)];
+		if (previous == locale) return previous;
+		int capacity = current.values.length;
+		if ((current.size+1)*2 > capacity) capacity *= 2;
+		Table next = copy(current, capacity, LocaleRegistry.NONE);
+		next.insert(msb, lsb, locale);
+		table = next;
+		return previous;
+	}
+
+	/** @return the previous locale id for this player or {@link LocaleRegistry#NONE} */
+	synchronized int remove(UUID player) {
+		long msb = player.getMostSignificantBits(), lsb = player.getLeastSignificantBits();
+		Table current = table;
+		int slot = current.slot(msb, lsb);
+		int previous = current.values[slot];
+		if (previous == LocaleRegistry.NONE) return previous;
+		int capacity = current.values.length;
+		while (capacity > MIN_CAPACITY && current.size*8 < capacity) capacity /= 2;
+		table = copy(current, capacity, slot);
+		return previous;
+	}
+
+	/** rehash all entries into a new table, skipping the specified slot */
+	private static Table copy(Table from, int capacity, int skip) {
+		Table to = new Table(capacity);
+		for (int i = 0; i < from.values.length; i++) {
+			if (i == skip || from.values[i] == LocaleRegistry.NONE) continue;
+			to.insert(from.keys[i*2], from.keys[i*2+1], from.values[i]);
+		}
+		return to;
+	}
+
+	/** @return true if at least one player is using this locale id */
+	boolean containsValue(int locale) {
+		if (locale < 0) return false;
+		for (int value : table.values)
+			if (value == locale) return true;
+		return false;
+	}
+
+	/** @return the amount of players using this locale id */
+	int count(int locale) {
+		if (locale < 0) return 0;
+		int count = 0;
+		for (int value : table.values)
+			if (value == locale) count++;
+		return count;
+	}
+
+	/** @return a set of all locale ids currently in use */
+	BitSet values() {
+		BitSet result = new BitSet();
+		for (int value : table.values)
+			if (value != LocaleRegistry.NONE) result.set(value);
+		return result;
+	}
+
+	int size() {
+		return table.size;
+	}
+
+}
@@ -0,0 +1,49 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** Holds the translations of all registered plugins.<br>
+ * Plugins register rarely, but translations are looked up and iterated from the
+ * main thread and loader threads all the time. So every change publishes a new
+ * immutable snapshot, lookups and iteration never lock and never observe a
+ * concurrent modification. */
+class PluginRegistry {
+
+	private volatile Map<String, Lang> snapshot = Collections.emptyMap();
+
+	/** @return the translations for this plugin id or null */
+	Lang get(String pluginID) {
+		return snapshot.get(pluginID);
+	}
+
+	/** @return the previous translations for this plugin id or null */
+	synchronized Lang register(String pluginID, Lang translation) {
+		Map<String, Lang> next = new HashMap<>(snapshot);
+		Lang previous = next.put(pluginID, translation);
+		snapshot = Collections.unmodifiableMap(next);
+		return previous;
+	}
+
+	/** @return the removed translations for this plugin id or null */
+	synchronized Lang unregister(String pluginID) {
+		if (!snapshot.containsKey(pluginID)) return null;
+		Map<String, Lang> next = new HashMap<>(snapshot);
+		Lang previous = next.remove(pluginID);
+		snapshot = Collections.unmodifiableMap(next);
+		return previous;
+	}
+
+	/** @return a view of all registrations at the time of calling, that will not change */
+	Set<Map.Entry<String, Lang>> entrySet() {
+		return snapshot.entrySet();
+	}
+	/** @return a view of all registrations at the time of calling, that will not change */
+	Collection<Lang> values() {
+		return snapshot.values();
+	}
+
+}
@@ -0,0 +1,90 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/** Plural categories for the most common languages, following the CLDR rules for integers.
+ * Languages that are not listed use the english rule. */
+enum PluralRules {
+
+	/** one for 1, other for everything else */
+	ONE_OTHER {
+		@Override String select(long n) {
+			return n == 1 ? "one" : "other";
+		}
+	},
+	/** one for 0 and 1, like french */
+	ZERO_ONE_OTHER {
+		@Override String select(long n) {
+			return n == 0 || n == 1 ? "one" : "other";
+		}
+	},
+	/** no plural forms, like japanese */
+	OTHER {
+		@Override String select(long n) {
+			return "other";
+		}
+	},
+	/** east slavic, like russian */
+	SLAVIC {
+		@Override String select(long n) {
+			long mod10 = n % 10, mod100 = n % 100;
+			if (mod10 == 1 && mod100 != 11) return "one";
+			if (mod10 >= 2 && mod10 <= 4 && (mod100 < 12 || mod100 > 14)) return "few";
+			return "many";
+		}
+	},
+	POLISH {
+		@Override String select(long n) {
+			long mod10 = n % 10, mod100 = n % 100;
+			if (n == 1) return "one";
+			if (mod10 >= 2 && mod10 <= 4 && (mod100 < 12 || mod100 > 14)) return "few";
+			return "many";
+		}
+	},
+	/** czech and slovak */
+	CZECH {
+		@Override String select(long n) {
+			if (n == 1) return "one";
+			if (n >= 2 && n <= 4) return "few";
+			return "other";
+		}
+	},
+	ARABIC {
+		@Override String select(long n) {
+			long mod100 = n % 100;
+			if (n == 0) return "zero";
+			if (n == 1) return "one";
+			if (n == 2) return "two";
+			if (mod100 >= 3 && mod100 <= 10) return "few";
+			if (mod100 >= 11) return "many";
+			return "other";
+		}
+	};
+
+	/** @param n the absolute value of the number
+	 * @return the CLDR plural category: zero, one, two, few, many or other */
+	abstract String select(long n);
+
+	private static final Map<String, PluralRules> byLanguage = new HashMap<>();
+	static {
+		for (String language : new String[]{"fr", "hy", "kab"})
+			byLanguage.put(language, ZERO_ONE_OTHER);
+		for (String language : new String[]{"ja", "zh", "ko", "vi", "th", "id", "ms", "lo", "my"})
+			byLanguage.put(language, OTHER);
+		for (String language : new String[]{"ru", "uk", "be"})
+			byLanguage.put(language, SLAVIC);
+		byLanguage.put("pl", POLISH);
+		byLanguage.put("cs", CZECH);
+		byLanguage.put("sk", CZECH);
+		byLanguage.put("ar", ARABIC);
+	}
+
+	static PluralRules forLocale(Locale locale) {
+		if (locale == null) return ONE_OTHER;
+		if (locale.getLanguage().equals("pt") && locale.getCountry().equals("BR")) return ZERO_ONE_OTHER;
+		return byLanguage.getOrDefault(locale.getLanguage(), ONE_OTHER);
+	}
+
+}
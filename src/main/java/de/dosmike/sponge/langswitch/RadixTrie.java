@@ -0,0 +1,231 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Immutable path compressed trie mapping translation paths to int values.<br>
+ * All nodes live in a few parallel arrays, edge labels are ranges in one shared
+ * char array and the children of a node are stored next to each other, sorted
+ * by their first char. Iteration is in lexicographical order. */
+class RadixTrie {
+
+	static final int NONE = -1;
+
+	private final char[] labels;
+	private final int[] labelStart;
+	private final int[] labelLength;
+	private final int[] firstChild;
+	private final int[] childCount;
+	private final int[] values;
+	private final int size;
+
+	/** helper collecting nodes while building */
+	private static final class Builder {
+		char[] labels = new char[256];
+		int labelsUsed = 0;
+		int[] labelStart = new int[16], labelLength = new int[16], firstChild = new int[16], childCount = new int[16], values = new int[16];
+		int nodes = 0;
+
+		int allocate(int count) {
+			int first = nodes;
+			nodes += count;
+			if (nodes > values.length) {
+				int capacity = Math.max(nodes, values.length*2);
+				labelStart = Arrays.copyOf(labelStart, capacity);
+				labelLength = Arrays.copyOf(labelLength, capacity);
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				childCount = Arrays.copyOf(childCount, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			return first;
+		}
+		void label(int node, String key, int from, int to) {
+			int length = to-from;
+			if (labelsUsed+length > labels.length) labels = Arrays.copyOf(labels, Math.max(labelsUsed+length, labels.length*2));
+			key.getChars(from, to, labels, labelsUsed);
+			labelStart[node] = labelsUsed;
+			labelLength[node] = length;
+			labelsUsed += length;
+		}
+	}
+
+	/** @param keys sorted, distinct keys
+	 * @param values the value for each key */
+	RadixTrie(String[] keys, int[] values) {
+		Builder b = new Builder();
+		int root = b.allocate(1);
+		b.labelStart[root] = 0;
+		b.labelLength[root] = 0;
+		build(b, root, keys, values, 0, keys.length, 0);
+		labels = Arrays.copyOf(b.labels, b.labelsUsed);
+		labelStart = Arrays.copyOf(b.labelStart, b.nodes);
+		labelLength = Arrays.copyOf(b.labelLength, b.nodes);
+		firstChild = Arrays.copyOf(b.firstChild, b.nodes);
+		childCount = Arrays.copyOf(b.childCount, b.nodes);
+		this.values = Arrays.copyOf(b.values, b.nodes);
+		size = keys.length;
+	}
+
+	/** fills node with the keys in [from, to) that all share the first depth chars */
+	private static void build(Builder b, int node, String[] keys, int[] values, int from, int to, int depth) {
+		b.values[node] = NONE;
+		if (from < to && keys[from].length() == depth) { //sorted, so the exact match comes first
+			b.values[node] = values[from];
+			from++;
+		}
+		//count groups by next char
+		int groups = 0;
+		for (int i = from; i < to; ) {
+			char c = keys[i].charAt(depth);
+			while (i < to && keys[i].charAt(depth) == c) i++;
+			groups++;
+		}
+		int first = b.allocate(groups);
+		b.firstChild[node] = first;
+		b.childCount[node] = groups;
+		int child = first;
+		for (int i = from; i < to; child++) {
+			char c = keys[i].charAt(depth);
+			int end = i;
+			while (end < to && keys[end].charAt(depth) == c) end++;
+			//the common prefix of a sorted range is the common prefix of its first and last key
+			String a = keys[i], z = keys[end-1];
+			int common = depth+1;
+			int max = Math.min(a.length(), z.length());
+			while (common < max && a.charAt(common) == z.charAt(common)) common++;
+			b.label(child, a, depth, common);
+			build(b, child, keys, values, i, end, common);
+			i = end;
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** @return the value for this key or {@link #NONE} */
+	int get(String key) {
+		int node = 0, pos = 0, length = key.length();
+		while (pos < length) {
+			node = child(node, key.charAt(pos));
+			if (node < 0) return NONE;
+			int labelLen = labelLength[node];
+			if (pos+labelLen > length || !matches(node, key, pos, labelLen)) return NONE;
+			pos += labelLen;
+		}
+		return values[node];
+	}
+
+	/** binary search for the child starting with c */
+	private int child(int node, char c) {
+		int lo = firstChild[node], hi = lo+childCount[node]-1;
+		while (lo <= hi) {
+			int mid = (lo+hi) >>> 1;
+			char m = labels[labelStart[mid]];
+			if (m < c) lo = mid+1;
+			else if (m > c) hi = mid-1;
+			else return mid;
+		}
+		return -1;
+	}
+	private boolean matches(int node, String key, int pos, int length) {
+		int start = labelStart[node];
+		for (int i = 0; i < length; i++)
+			if (labels[start+i] != key.charAt(pos+i)) return false;
+		return true;
+	}
+
+	/** Finds all keys starting with the prefix, in lexicographical order.
+	 * The cursor walks the trie on demand and does not collect results up front. */
+	Cursor cursor(String prefix) {
+		int node = 0, pos = 0, length = prefix.length();
+		while (pos < length) {
+			node = child(node, prefix.charAt(pos));
+			if (node < 0) return new Cursor(-1, prefix);
+			int labelLen = labelLength[node];
+			int compare = Math.min(labelLen, length-pos);
+			if (!matches(node, prefix, pos, compare)) return new Cursor(-1, prefix);
+			if (compare < labelLen) //prefix ends within this label
+				return new Cursor(node, prefix.substring(0, pos));
+			pos += labelLen;
+		}
+		return new Cursor(node, prefix.substring(0, pos-labelLength[node]));
+	}
+
+	/** Depth first iterator over a sub-trie. */
+	class Cursor implements Iterator<String> {
+		/** nodes on the current path and the next child to visit for each */
+		private int[] nodes = new int[8];
+		private int[] nextChild = new int[8];
+		private int depth = -1;
+		private final StringBuilder path;
+		private int[] pathLength = new int[8];
+		private String next = null;
+		private int value = NONE;
+
+		/** @param node root of the sub-trie or -1 for no results
+		 * @param parentPath the key up to but excluding the label of node */
+		private Cursor(int node, String parentPath) {
+			path = new StringBuilder(parentPath);
+			if (node >= 0) push(node);
+			advance();
+		}
+
+		private void push(int node) {
+			depth++;
+			if (depth == nodes.length) {
+				nodes = Arrays.copyOf(nodes, depth*2);
+				nextChild = Arrays.copyOf(nextChild, depth*2);
+				pathLength = Arrays.copyOf(pathLength, depth*2);
+			}
+			pathLength[depth] = path.length();
+			path.append(labels, labelStart[node], labelLength[node]);
+			nodes[depth] = node;
+			nextChild[depth] = -1;
+		}
+
+		/** find the next node with a value, visiting a node before its children */
+		private void advance() {
+			next = null;
+			while (depth >= 0) {
+				int node = nodes[depth];
+				int child = nextChild[depth]++;
+				if (child < 0) {
+					//first visit: emit the node itself
+					if (values[node] != NONE) {
+						next = path.toString();
+						value = values[node];
+						return;
+					}
+				} else if (child < childCount[node]) {
+					push(firstChild[node]+child);
+				} else {
+					path.setLength(pathLength[depth]);
+					depth--;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public String next() {
+			if (next == null) throw new NoSuchElementException();
+			String result = next;
+			lastValue = value;
+			advance();
+			return result;
+		}
+
+		private int lastValue = NONE;
+		/** @return the value for the key last returned by {@link #next()} */
+		int value() {
+			return lastValue;
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.ResolvedTranslations;
+
+import java.util.Locale;
+
+class ResolvedTranslationsImpl implements ResolvedTranslations {
+
+	private String[] paths;
+	private String[] values;
+	private int size;
+	private Locale locale;
+
+	private ResolvedTranslationsImpl(int capacity) {
+		paths = new String[capacity];
+		values = new String[capacity];
+	}
+
+	/** @param reuse a previous result, or null
+	 * @return reuse cleared for size values, or a new instance if reuse can't be used */
+	static ResolvedTranslationsImpl reuse(ResolvedTranslations reuse, int size, Locale locale) {
+		ResolvedTranslationsImpl result = reuse instanceof ResolvedTranslationsImpl
+				? (ResolvedTranslationsImpl) reuse
+				: new ResolvedTranslationsImpl(size);
+		if (result.paths.length < size) {
+			result.paths = new String[size];
+			result.values = new String[size];
+		} else {
+			//don't keep old strings reachable
+			for (int i = size; i < result.size; i++) result.paths[i] = result.values[i] = null;
+		}
+		result.size = size;
+		result.locale = locale;
+		return result;
+	}
+
+	void set(int index, String path, String value) {
+		paths[index] = path;
+		values[index] = value;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Locale getLocale() {
+		return locale;
+	}
+
+	@Override
+	public String getPath(int index) {
+		checkIndex(index);
+		return paths[index];
+	}
+
+	@Override
+	public boolean isPresent(int index) {
+		checkIndex(index);
+		return values[index] != null;
+	}
+
+	@Override
+	public String get(int index) {
+		checkIndex(index);
+		String value = values[index];
+		return value != null ? value : paths[index]+String.format("[%s]", locale == null ? "" : locale.toString());
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+	}
+
+}
@@ -0,0 +1,81 @@
+package de.dosmike.sponge.langswitch;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** A few reusable StringBuilders, value arrays and BitSets per thread for rendering translations.<br>
+ * Rendering may nest, e.g. for replacements that are Localized themselves, so buffers
+ * are taken from the thread while in use and returned once done. Only when more buffers
+ * are in use at once than are kept, new ones are created. */
+final class ScratchBuffers {
+
+	/** buffers that grew larger than this are not kept */
+	private static final int MAX_RETAINED = 8192;
+	/** value arrays longer than this are not kept */
+	private static final int MAX_VALUES = 256;
+	/** amount of each buffer kept per thread, enough for a render with a few nested ones */
+	private static final int MAX_POOLED = 4;
+
+	/** free buffers of one thread, used as stacks */
+	private static final class Pool {
+		final StringBuilder[] buffers = new StringBuilder[MAX_POOLED];
+		int freeBuffers = 0;
+		final CharSequence[][] values = new CharSequence[MAX_POOLED][];
+		int freeValues = 0;
+		final BitSet[] bits = new BitSet[MAX_POOLED];
+		int freeBits = 0;
+	}
+	private static final ThreadLocal<Pool> pools = ThreadLocal.withInitial(Pool::new);
+
+	private ScratchBuffers() {}
+
+	/** @return an empty buffer, pass it to {@link #release(StringBuilder)} once done */
+	static StringBuilder acquire() {
+		Pool pool = pools.get();
+		if (pool.freeBuffers == 0) return new StringBuilder(256);
+		StringBuilder buffer = pool.buffers[--pool.freeBuffers];
+		pool.buffers[pool.freeBuffers] = null;
+		buffer.setLength(0);
+		return buffer;
+	}
+
+	static void release(StringBuilder buffer) {
+		Pool pool = pools.get();
+		if (buffer.capacity() <= MAX_RETAINED && pool.freeBuffers < MAX_POOLED)
+			pool.buffers[pool.freeBuffers++] = buffer;
+	}
+
+	/** @return an array of nulls with at least size elements. Pass it to
+	 * {@link #release(CharSequence[])} once done */
+	static CharSequence[] acquireValues(int size) {
+		Pool pool = pools.get();
+		if (pool.freeValues == 0) return new CharSequence[Math.max(size, 16)];
+		CharSequence[] values = pool.values[--pool.freeValues];
+		pool.values[pool.freeValues] = null;
+		return values.length < size ? new CharSequence[size] : values;
+	}
+
+	static void release(CharSequence[] values) {
+		Pool pool = pools.get();
+		if (values.length > MAX_VALUES || pool.freeValues >= MAX_POOLED) return;
+		Arrays.fill(values, null); //don't keep rendered values alive
+		pool.values[pool.freeValues++] = values;
+	}
+
+	/** @return an empty bit set, pass it to {@link #release(BitSet)} once done. Used to track
+	 * placeholders while rendering, indexed like the keys of the {@link PlaceholderMatcher} */
+	static BitSet acquireBits() {
+		Pool pool = pools.get();
+		if (pool.freeBits == 0) return new BitSet();
+		BitSet bits = pool.bits[--pool.freeBits];
+		pool.bits[pool.freeBits] = null;
+		bits.clear();
+		return bits;
+	}
+
+	static void release(BitSet bits) {
+		Pool pool = pools.get();
+		if (pool.freeBits < MAX_POOLED) pool.bits[pool.freeBits++] = bits;
+	}
+
+}
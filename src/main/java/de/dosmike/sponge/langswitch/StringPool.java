@@ -0,0 +1,21 @@
+package de.dosmike.sponge.langswitch;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/** LangSwitch wide pool for translation keys and values.<br>
+ * The same keys appear in every locale of a plugin, and a lot of values like
+ * "Yes", "No" or color prefixes repeat across plugins. The pool only holds weak
+ * references, so strings are released once no table uses them anymore. */
+final class StringPool {
+
+	private static final Interner<String> pool = Interners.newWeakInterner();
+
+	private StringPool() {}
+
+	/** @return the pooled instance equal to this string */
+	static String intern(String string) {
+		return string == null ? null : pool.intern(string);
+	}
+
+}
@@ -0,0 +1,98 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.TranslationHandle;
+
+import java.util.Locale;
+
+/** Caches the resolved template of one path for every locale, falling back to the
+ * plugins default locale. The cache is dropped as a whole when the version of the
+ * plugin translation changes, so a hit is a version check and an array read. */
+class TranslationHandleImpl implements TranslationHandle {
+
+	/** resolved templates for one version, indexed by locale id */
+	private static final class Snapshot {
+		final int version;
+		final String[] values;
+		Snapshot(int version, int locales) {
+			this.version = version;
+			values = new String[locales];
+		}
+	}
+
+	private final Lang lang;
+	private final String path;
+	/** slots are never reassigned, so this only changes from NONE to the final slot */
+	private volatile int slot;
+	private volatile Snapshot cache;
+
+	TranslationHandleImpl(Lang lang, String path) {
+		this.lang = lang;
+		this.path = path;
+		slot = lang.keys.slot(path);
+		cache = new Snapshot(lang.getVersion(), LocaleRegistry.size());
+	}
+
+	@Override
+	public String getPath() {
+		return path;
+	}
+
+	/** @return the slot of this handle if it belongs to the plugin translation, {@link KeyIndex#NONE} otherwise */
+	int slotFor(Lang owner) {
+		if (owner != lang) return KeyIndex.NONE;
+		int slot = this.slot;
+		if (slot == KeyIndex.NONE) this.slot = slot = lang.keys.slot(path);
+		return slot;
+	}
+
+	/** @return the translation in this locale or the plugins default locale, or null */
+	String resolve(Locale locale) {
+		int id = LocaleRegistry.id(locale);
+		Snapshot snapshot = cache;
+		int version = lang.getVersion();
+		if (snapshot.version != version) //tables changed, start over
+			cache = snapshot = new Snapshot(version, LocaleRegistry.size());
+		String[] values = snapshot.values;
+		String value = id >= 0 && id < values.length ? values[id] : null;
+		if (value != null) {
+			//lookups served from the snapshot still count as use of the table for the memory budget
+			LangTable table = lang.getTable(id);
+			if (table != null) table.touch();
+			return value;
+		}
+
+		value = lang.query(path, slotFor(lang), id, LocaleRegistry.id(lang.def), true);
+		//the version is bumped after tables are replaced, so a value computed from old tables
+		//ends up in an outdated snapshot at worst. unknown locales (id < 0) are not cached
+		if (value != null && id >= 0) {
+			if (id >= values.length) {
+				Snapshot grown = new Snapshot(version, Math.max(id+1, LocaleRegistry.size()));
+				System.arraycopy(values, 0, grown.values, 0, values.length);
+				cache = snapshot = grown;
+			}
+			snapshot.values[id] = value;
+		}
+		return value;
+	}
+
+	@Override
+	public String get(Locale locale) {
+		String value = resolve(locale);
+		return value != null ? value : lang.get(path, locale, lang.def, true);
+	}
+
+	@Override
+	public LocalizedString local() {
+		return new LocalizedString(lang, this);
+	}
+	@Override
+	public LocalizedText localText() {
+		return new LocalizedText(lang, this);
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+}
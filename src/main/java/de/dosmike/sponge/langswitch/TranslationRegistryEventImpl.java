@@ -0,0 +1,47 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.PluginTranslation;
+import de.dosmike.sponge.languageservice.API.TranslationRegistryEvent;
+import org.spongepowered.api.event.cause.Cause;
+import org.spongepowered.api.event.impl.AbstractEvent;
+
+abstract class TranslationRegistryEventImpl extends AbstractEvent implements TranslationRegistryEvent {
+
+	private final Cause cause;
+	private final String pluginID;
+	private final PluginTranslation translation;
+
+	private TranslationRegistryEventImpl(Cause cause, String pluginID, PluginTranslation translation) {
+		this.cause = cause;
+		this.pluginID = pluginID;
+		this.translation = translation;
+	}
+
+	@Override
+	public Cause getCause() {
+		return cause;
+	}
+
+	@Override
+	public String getPluginId() {
+		return pluginID;
+	}
+
+	@Override
+	public PluginTranslation getTranslation() {
+		return translation;
+	}
+
+	static class Register extends TranslationRegistryEventImpl implements TranslationRegistryEvent.Register {
+		Register(Cause cause, String pluginID, PluginTranslation translation) {
+			super(cause, pluginID, translation);
+		}
+	}
+
+	static class Unregister extends TranslationRegistryEventImpl implements TranslationRegistryEvent.Unregister {
+		Unregister(Cause cause, String pluginID, PluginTranslation translation) {
+			super(cause, pluginID, translation);
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package de.dosmike.sponge.langswitch;
+
+import de.dosmike.sponge.languageservice.API.PluginTranslation;
+import de.dosmike.sponge.languageservice.API.TranslationsReloadedEvent;
+import org.spongepowered.api.event.cause.Cause;
+import org.spongepowered.api.event.impl.AbstractEvent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
+class TranslationsReloadedEventImpl extends AbstractEvent implements TranslationsReloadedEvent {
+
+	private final Cause cause;
+	private final String pluginID;
+	private final PluginTranslation translation;
+	private final Collection<Locale> locales;
+
+	TranslationsReloadedEventImpl(Cause cause, String pluginID, PluginTranslation translation, Collection<Locale> locales) {
+		this.cause = cause;
+		this.pluginID = pluginID;
+		this.translation = translation;
+		this.locales = Collections.unmodifiableCollection(locales);
+	}
+
+	@Override
+	public Cause getCause() {
+		return cause;
+	}
+
+	@Override
+	public String getPluginId() {
+		return pluginID;
+	}
+
+	@Override
+	public PluginTranslation getTranslation() {
+		return translation;
+	}
+
+	@Override
+	public Collection<Locale> getLocales() {
+		return locales;
+	}
+
+}
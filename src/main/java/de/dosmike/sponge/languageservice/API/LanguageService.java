@@ -3,6 +3,7 @@ package de.dosmike.sponge.languageservice.API;
 import de.dosmike.sponge.langswitch.LocalizedString;
 import de.dosmike.sponge.langswitch.LocalizedText;
 import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.text.Text;
 
 import java.util.Locale;
 import java.util.Optional;
@@ -41,6 +42,33 @@ public interface LanguageService {
 	 * @return your plugin translation instance. */
 	public PluginTranslation registerTranslation(Object plugin);
 
+	/** Removes your plugin from the service, translations will no longer be loaded for it and
+	 * {@link #getTranslation(Object)} will return empty. Previously received {@link Localized}s
+	 * keep working with the translations that were loaded at that time.
+	 * @param plugin the plugin instance you want to unregister
+	 * @return true if the plugin was registered before */
+	public boolean unregisterTranslation(Object plugin);
+
+	/** Queues a message for the receiver, resolved for the receivers locale right away.
+	 * All messages queued for the same receiver are sent together at the start of the next
+	 * tick as one message, with every message on its own line.<br>
+	 * Queued messages are delayed, so they may arrive after messages you send directly with
+	 * {@link CommandSource#sendMessage(Text)} later in the same tick. Messages for players that
+	 * disconnect before the queue is flushed are dropped.
+	 * @param receiver who to send the message to
+	 * @param message the message to resolve and send */
+	public void send(CommandSource receiver, Localized<?> message);
+	/** Queues a message for the receiver, see {@link #send(CommandSource, Localized)}.
+	 * Use this to keep the order when mixing localized and plain messages.
+	 * @param receiver who to send the message to
+	 * @param message the message to send */
+	public void send(CommandSource receiver, Text message);
+
+	/** Creates a renderer that only renders lines of periodically updated displays again
+	 * when something they depend on changed.
+	 * @return a new {@link LineRenderer} */
+	public LineRenderer createLineRenderer();
+
 	/** Player can change their selected localization with the /language command.
 	 * In order to better integrate with other translation tools this will return
 	 * the player chosen, or default language
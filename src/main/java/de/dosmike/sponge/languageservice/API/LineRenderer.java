@@ -0,0 +1,44 @@
+package de.dosmike.sponge.languageservice.API;
+
+import org.spongepowered.api.text.Text;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+/** Keeps the last rendered Text for every line of every receiver, for displays that are
+ * refreshed periodically like scoreboards or holograms.<br>
+ * A line is only rendered again if the translation path, the replacement values, the receivers
+ * locale or the translations changed. Strings, numbers, Text and other immutable replacement values
+ * are compared with equals. Any other value, like Suppliers, Functions, other Localized instances or
+ * mutable objects, always counts as changed, as do Localized implementations not created by this
+ * service. Such lines are rendered on every update and only reported if the resulting Text differs.<br>
+ * Get an instance with {@link LanguageService#createLineRenderer()}. Receivers are removed
+ * automatically when they disconnect. */
+public interface LineRenderer {
+
+	/** Renders the line for the receiver unless it's up to date.
+	 * @param receiver the player the line is rendered for
+	 * @param line the index of the line
+	 * @param text the localized text that should be displayed in this line
+	 * @return true if the line changed and has to be sent again */
+	public boolean update(UUID receiver, int line, Localized<Text> text);
+
+	/** @param receiver the player the line was rendered for
+	 * @param line the index of the line
+	 * @return the last rendered Text for this line, or {@link Text#EMPTY} */
+	public Text getLine(UUID receiver, int line);
+
+	/** @param receiver the player the lines were rendered for
+	 * @return the lines that changed since the last call, the dirty state is reset */
+	public BitSet takeDirty(UUID receiver);
+
+	/** Forgets a line, it will be reported as dirty on the next update.
+	 * @param receiver the player the line was rendered for
+	 * @param line the index of the line */
+	public void clear(UUID receiver, int line);
+
+	/** Forgets all lines rendered for a receiver.
+	 * @param receiver the player the lines were rendered for */
+	public void remove(UUID receiver);
+
+}
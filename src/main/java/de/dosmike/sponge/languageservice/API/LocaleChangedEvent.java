@@ -0,0 +1,22 @@
+package de.dosmike.sponge.languageservice.API;
+
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.profile.GameProfile;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/** Fired after a player selected a different locale, e.g. with <code>/language</code>.
+ * Text you cached for this player should be resolved again. */
+public interface LocaleChangedEvent extends Event {
+
+	/** @return the player that changed the locale */
+	GameProfile getProfile();
+
+	/** @return the locale the player used before, if one was known */
+	Optional<Locale> getOldLocale();
+
+	/** @return the locale the player uses now */
+	Locale getNewLocale();
+
+}
@@ -3,7 +3,9 @@ package de.dosmike.sponge.languageservice.API;
 import org.spongepowered.api.command.CommandSource;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.profile.GameProfile;
+import org.spongepowered.api.text.Text;
 
+import java.io.IOException;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,7 +20,10 @@ public interface Localized<X> {
 	 * <pre>The target was a %entity%, but humans are required</pre>
 	 * Get the Localized from your {@link PluginTranslation} and add the replacement like
 	 * <pre>translations.local("cmd.target.nothuman").replace("%entity%", entity.getType().getTranslation())</pre>
-	 * When resolving the Localized %entity% may be replaced with Pig
+	 * When resolving the Localized %entity% may be replaced with Pig<br>
+	 * If the value is expensive to compute pass a {@link java.util.function.Supplier} or a
+	 * {@link java.util.function.Function} taking the {@link Locale}. They are only called if the translation
+	 * actually contains the placeholder, at most once every time this Localized is resolved.
 	 * @param placeholder the string to be replaced
 	 * @param replacement the value to take it's place (if not a string toString() will be called)
 	 * @return this localized for chaining
@@ -82,4 +87,32 @@ public interface Localized<X> {
 	 * @return The Localized result for this Player */
 	public X orLiteral(Locale locale);
 
+	/** Works like {@link #resolve(Locale)}, but appends the plain result to out instead of returning it.
+	 * Intermediate values are built in reused buffers, so resolving many messages every tick does not
+	 * create garbage besides what out itself allocates. Implementations that don't override this
+	 * append the result of {@link #resolve(Locale)}.
+	 * @param out where to append the result
+	 * @param locale the language to try and resolve this for
+	 * @return false if no translation was found, in which case nothing was appended
+	 * @throws IOException if out throws */
+	public default boolean resolveInto(Appendable out, Locale locale) throws IOException {
+		Optional<X> resolved = resolve(locale);
+		if (!resolved.isPresent()) return false;
+		X value = resolved.get();
+		out.append(value instanceof Text ? ((Text) value).toPlain() : String.valueOf(value));
+		return true;
+	}
+	/** Works like {@link #resolve(Locale)}, but appends the result to a Text builder instead of returning it.
+	 * Like {@link #resolveInto(Appendable, Locale)} intermediate values are built in reused buffers where possible.
+	 * @param out the builder to append the result to
+	 * @param locale the language to try and resolve this for
+	 * @return false if no translation was found, in which case nothing was appended */
+	public default boolean resolveInto(Text.Builder out, Locale locale) {
+		Optional<X> resolved = resolve(locale);
+		if (!resolved.isPresent()) return false;
+		X value = resolved.get();
+		out.append(value instanceof Text ? (Text) value : Text.of(value));
+		return true;
+	}
+
 }
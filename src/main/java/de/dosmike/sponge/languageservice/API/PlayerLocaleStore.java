@@ -0,0 +1,33 @@
+package de.dosmike.sponge.languageservice.API;
+
+import de.dosmike.sponge.langswitch.FileLocaleStore;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/** Persists the locale a player was using, so translations can be resolved
+ * for players that are currently offline.<br>
+ * The default implementation is a {@link FileLocaleStore}, other plugins may
+ * replace it by registering a different provider for this class with the
+ * ServiceManager.
+ */
+public interface PlayerLocaleStore {
+
+	/** Has to answer from memory, this is called whenever something resolves for a player
+	 * that is not online.
+	 * @param player the players unique id
+	 * @return the locale last used by this player, if known */
+	Optional<Locale> get(UUID player);
+
+	/** Remember the locale for a player. Implementations should not perform blocking
+	 * I/O in here, but batch writes until {@link #flush()} is called.
+	 * @param player the players unique id
+	 * @param locale the locale to remember */
+	void put(UUID player, Locale locale);
+
+	/** Persist all pending changes. LangSwitch calls this periodically from an
+	 * async task and once when the server is stopping. */
+	void flush();
+
+}
@@ -2,7 +2,10 @@ package de.dosmike.sponge.languageservice.API;
 
 import org.spongepowered.api.text.Text;
 
+import java.util.Collection;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /** Interface providing translations for your Plugin.
  * You can hold the instance during as these PluginTranslations are only generated once. */
@@ -14,6 +17,25 @@ public interface PluginTranslation {
 	 * @return true if translations for this locale were loaded */
 	public boolean isLocaleLoaded(Locale locale);
 	
+	/** Requests the translations for a locale to be loaded, if they are not already.
+	 * Concurrent requests for the same locale share the same load.
+	 * @param locale the locale you're going to need
+	 * @return a future completing once the locale was loaded */
+	public CompletableFuture<Void> awaitLoaded(Locale locale);
+
+	/** Requests multiple locales to be loaded in the background with low priority.
+	 * Locales that are not used by any player may be unloaded again later.
+	 * @param locales the locales you're likely going to need
+	 * @return a future completing once all locales were loaded */
+	public CompletableFuture<Void> preload(Collection<Locale> locales);
+	
+	/** Returns a stamp that increases every time the translations for a locale are loaded, reloaded or modified.
+	 * This includes the less specific locales it falls back to and the default locale.
+	 * Cache rendered text together with this stamp and render again once it changed. Also see {@link TranslationsReloadedEvent}.
+	 * @param locale the locale to check
+	 * @return the current version of this locale, 0 if it was never loaded */
+	public long getVersion(Locale locale);
+
 	/** this method returns the default locale for your plugin, in the default locale this will be the derver default locale
 	 * reflecting the value specified in the langswitch configuration.
 	 * @return This plugins default locale for translations */
@@ -38,6 +60,22 @@ public interface PluginTranslation {
 	 * @return true if a translation with this path exists in the given locale */
 	public boolean hasOrDefault(String path, Locale lang);
 	
+	/** Lists translation paths starting with prefix, in alphabetical order, e.g. to build menus or tab completion.
+	 * Paths are collected from all locales loaded so far. The result is computed lazily while iterating,
+	 * so it's cheap to only look at the first few results. Namespace files that may hold matching paths
+	 * are read in the background, a {@link TranslationsReloadedEvent} is posted once they were read.
+	 * @param prefix the start of the paths to list, empty for all paths
+	 * @return all known translation paths starting with prefix */
+	public Iterable<String> keys(String prefix);
+
+	/** Lists translations with paths starting with prefix, in alphabetical order.
+	 * Paths without translation in the locale use the default locale, paths without either are skipped.
+	 * Like {@link #keys(String)} values are only resolved while iterating.
+	 * @param prefix the start of the paths to list, empty for all paths
+	 * @param locale the locale to return translations for
+	 * @return path and translation pairs */
+	public Iterable<Map.Entry<String, String>> entries(String prefix, Locale locale);
+
 	/** Returns a {@link Localized} that accepts replace parameters and has no defined language yet.
 	 * This localized to return a String one resolved for a CommandSource
 	 * @param path the translation path to be resolved for a translation
@@ -48,4 +86,46 @@ public interface PluginTranslation {
 	 * @param path the translation path to be resolved for a translation
 	 * @return a prepared Localized resolving into a Text */
 	public Localized<Text> localText(String path);
+
+	/** Returns a handle for this path that can be held for the lifetime of your plugin and stays valid
+	 * when translations are reloaded. Resolving through a handle is cheaper than repeating {@link #local(String)}
+	 * for frequently sent messages.
+	 * @param path the translation path to be resolved for a translation
+	 * @return a reusable handle for this path */
+	public TranslationHandle handle(String path);
+
+	/** Resolves many paths for the same locale at once, see {@link #resolveAll(Collection, Locale, ResolvedTranslations)}
+	 * @param paths the paths to resolve, results are in iteration order
+	 * @param locale the locale to return translations for, falling back to the default locale
+	 * @return the translations */
+	public ResolvedTranslations resolveAll(Collection<String> paths, Locale locale);
+	/** Resolves many handles for the same locale at once, see {@link #resolveAll(TranslationHandle[], Locale, ResolvedTranslations)}
+	 * @param handles the handles to resolve, results are in the same order
+	 * @param locale the locale to return translations for, falling back to the default locale
+	 * @return the translations */
+	public ResolvedTranslations resolveAll(TranslationHandle[] handles, Locale locale);
+	/** Resolves many paths for the same locale at once, e.g. for a scoreboard or menu.
+	 * All paths are resolved against the same state of the translations.
+	 * @param paths the paths to resolve, results are in iteration order
+	 * @param locale the locale to return translations for, falling back to the default locale
+	 * @param reuse a previous result to overwrite instead of allocating a new one, or null
+	 * @return the translations, possibly the same instance as reuse */
+	public ResolvedTranslations resolveAll(Collection<String> paths, Locale locale, ResolvedTranslations reuse);
+	/** Like {@link #resolveAll(Collection, Locale, ResolvedTranslations)} for handles created with {@link #handle(String)},
+	 * which skip looking up the paths.
+	 * @param handles the handles to resolve, results are in the same order
+	 * @param locale the locale to return translations for, falling back to the default locale
+	 * @param reuse a previous result to overwrite instead of allocating a new one, or null
+	 * @return the translations, possibly the same instance as reuse */
+	public ResolvedTranslations resolveAll(TranslationHandle[] handles, Locale locale, ResolvedTranslations reuse);
+
+	/** Like {@link #local(String)} for keys generated from your default .lang file.
+	 * The translation is looked up by index instead of hashing the path on every resolve.
+	 * @param key a key generated for this plugin
+	 * @return a prepared Localized resolving into a String */
+	public Localized<String> local(TranslationKey key);
+	/** Like {@link #localText(String)} for keys generated from your default .lang file.
+	 * @param key a key generated for this plugin
+	 * @return a prepared Localized resolving into a Text */
+	public Localized<Text> localText(TranslationKey key);
 }
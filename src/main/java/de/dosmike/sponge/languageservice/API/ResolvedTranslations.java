@@ -0,0 +1,28 @@
+package de.dosmike.sponge.languageservice.API;
+
+import java.util.Locale;
+
+/** Result of resolving many translations at once with {@link PluginTranslation#resolveAll}.
+ * Values are in the same order as the requested paths. Pass an instance back into
+ * resolveAll to reuse its arrays, e.g. for a scoreboard that updates every second. */
+public interface ResolvedTranslations {
+
+	/** @return the amount of resolved paths */
+	public int size();
+
+	/** @return the locale these translations were resolved for */
+	public Locale getLocale();
+
+	/** @param index the index of the path in the request
+	 * @return the path at this index */
+	public String getPath(int index);
+
+	/** @param index the index of the path in the request
+	 * @return true if a translation was found in the locale or the default locale */
+	public boolean isPresent(int index);
+
+	/** @param index the index of the path in the request
+	 * @return the translation, or like {@link PluginTranslation#get(String, Locale)} the path with the locale in brackets if missing */
+	public String get(int index);
+
+}
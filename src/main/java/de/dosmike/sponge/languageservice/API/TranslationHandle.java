@@ -0,0 +1,25 @@
+package de.dosmike.sponge.languageservice.API;
+
+import org.spongepowered.api.text.Text;
+
+import java.util.Locale;
+
+/** A translation path that was resolved once and can be held for the lifetime of your plugin.
+ * Lookups through a handle are cached per locale and only repeated after translations changed,
+ * e.g. when a locale was loaded or reloaded.<br>
+ * Get one with {@link PluginTranslation#handle(String)}. */
+public interface TranslationHandle {
+
+	/** @return the translation path of this handle */
+	public String getPath();
+
+	/** @param locale the locale to return
+	 * @return the translation for locale or the default locale, or the path with the locale in brackets */
+	public String get(Locale locale);
+
+	/** @return a new {@link Localized} resolving through this handle */
+	public Localized<String> local();
+	/** @return a new {@link Localized} resolving into a Text through this handle */
+	public Localized<Text> localText();
+
+}
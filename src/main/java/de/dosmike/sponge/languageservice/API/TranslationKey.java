@@ -0,0 +1,35 @@
+package de.dosmike.sponge.languageservice.API;
+
+/** A translation path with a dense numeric id, as generated by the KeyGenerator
+ * from your default <code>.lang</code> file:<br>
+ * <code>java -cp LangSwitch.jar de.dosmike.sponge.langswitch.KeyGenerator &lt;lang file&gt; &lt;class name&gt; &lt;source dir&gt;</code><br>
+ * Using the generated constants instead of strings turns typos into compile errors
+ * and allows {@link PluginTranslation#local(TranslationKey)} to look up translations by index.
+ * Keys are only valid for the plugin they were generated for. */
+public final class TranslationKey {
+
+	private final int id;
+	private final String path;
+
+	public TranslationKey(int id, String path) {
+		if (id < 0) throw new IllegalArgumentException("Key ids can not be negative");
+		this.id = id;
+		this.path = path;
+	}
+
+	/** @return the index of this key in the generated key class */
+	public int getId() {
+		return id;
+	}
+
+	/** @return the translation path */
+	public String getPath() {
+		return path;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+}
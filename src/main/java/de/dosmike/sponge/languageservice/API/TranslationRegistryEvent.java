@@ -0,0 +1,22 @@
+package de.dosmike.sponge.languageservice.API;
+
+import org.spongepowered.api.event.Event;
+
+/** Fired by the {@link LanguageService} when plugins register or unregister
+ * their translations. Listen for the sub-events {@link Register} and {@link Unregister}.
+ */
+public interface TranslationRegistryEvent extends Event {
+
+	/** @return the id of the plugin that owns the translations */
+	String getPluginId();
+
+	/** @return the translations that were (un)registered */
+	PluginTranslation getTranslation();
+
+	/** Fired after a plugin registered its translations, the default locale will be loading at this point. */
+	interface Register extends TranslationRegistryEvent {}
+
+	/** Fired after a plugin unregistered its translations, they will no longer receive updates. */
+	interface Unregister extends TranslationRegistryEvent {}
+
+}
@@ -0,0 +1,22 @@
+package de.dosmike.sponge.languageservice.API;
+
+import org.spongepowered.api.event.Event;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/** Fired after translations of a plugin were loaded or reloaded from disk, possibly from an async thread.
+ * Text you cached in one of the locales should be resolved again. Compare {@link PluginTranslation#getVersion(Locale)}
+ * if you need to tell whether a cached value is outdated at a later point. */
+public interface TranslationsReloadedEvent extends Event {
+
+	/** @return the id of the plugin that owns the translations */
+	String getPluginId();
+
+	/** @return the translations that changed */
+	PluginTranslation getTranslation();
+
+	/** @return the locales that were loaded */
+	Collection<Locale> getLocales();
+
+}